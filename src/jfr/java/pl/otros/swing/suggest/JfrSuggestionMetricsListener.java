@@ -0,0 +1,131 @@
+/*
+ * Copyright 2014 otros.systems@gmail.com
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package pl.otros.swing.suggest;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Emits suggestion metrics as Java Flight Recorder events, so they can be correlated with GC pauses and EDT stalls
+ * in JDK Mission Control. Requires JVM with JFR API (Java 11 or Java 8u262 and later), check it with
+ * {@link #isAvailable()} before listener is created. Events are created only if they are enabled in running recording.
+ * <p>
+ * Listener is compiled from separate source set, so library can be built with Java 8 API.
+ * </p>
+ */
+public class JfrSuggestionMetricsListener implements SuggestionMetricsListener {
+
+  /**
+   * @return true if JVM provides Flight Recorder API
+   */
+  public static boolean isAvailable() {
+    try {
+      Class.forName("jdk.jfr.Event");
+      return true;
+    } catch (ClassNotFoundException e) {
+      return false;
+    }
+  }
+
+  @Override
+  public void queryCompleted(QueryMetrics metrics) {
+    final QueryEvent event = new QueryEvent();
+    if (!event.shouldCommit()) {
+      return;
+    }
+    event.caretLocation = metrics.getQuery().getCaretLocation();
+    event.resultCount = metrics.getResultCount();
+    event.debounce = metrics.getDuration(SuggestionStage.DEBOUNCE);
+    event.source = metrics.getDuration(SuggestionStage.SOURCE);
+    event.render = metrics.getDuration(SuggestionStage.RENDER);
+    event.pack = metrics.getDuration(SuggestionStage.PACK);
+    event.location = metrics.getDuration(SuggestionStage.LOCATION);
+    event.total = metrics.getTotalDuration();
+    event.commit();
+  }
+
+  @Override
+  public void queryCancelled(SuggestionQuery query) {
+    final CancelledQueryEvent event = new CancelledQueryEvent();
+    if (event.shouldCommit()) {
+      event.caretLocation = query.getCaretLocation();
+      event.commit();
+    }
+  }
+
+  @Override
+  public void cacheAccessed(boolean hit) {
+    final CacheAccessEvent event = new CacheAccessEvent();
+    if (event.shouldCommit()) {
+      event.hit = hit;
+      event.commit();
+    }
+  }
+
+  @Name("pl.otros.swing.suggest.Query")
+  @Label("Suggestion Query")
+  @Category("Suggestions")
+  @StackTrace(false)
+  static class QueryEvent extends Event {
+    @Label("Caret Location")
+    int caretLocation;
+    @Label("Result Count")
+    int resultCount;
+    @Label("Debounce")
+    @Timespan
+    long debounce;
+    @Label("Source")
+    @Timespan
+    long source;
+    @Label("Render")
+    @Timespan
+    long render;
+    @Label("Pack")
+    @Timespan
+    long pack;
+    @Label("Location")
+    @Timespan
+    long location;
+    @Label("Total")
+    @Timespan
+    long total;
+  }
+
+  @Name("pl.otros.swing.suggest.CancelledQuery")
+  @Label("Cancelled Suggestion Query")
+  @Description("Query cancelled because text or caret was changed before it finished")
+  @Category("Suggestions")
+  @StackTrace(false)
+  static class CancelledQueryEvent extends Event {
+    @Label("Caret Location")
+    int caretLocation;
+  }
+
+  @Name("pl.otros.swing.suggest.CacheAccess")
+  @Label("Suggestion Cache Access")
+  @Category("Suggestions")
+  @StackTrace(false)
+  static class CacheAccessEvent extends Event {
+    @Label("Hit")
+    boolean hit;
+  }
+}
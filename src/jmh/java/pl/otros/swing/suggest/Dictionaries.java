@@ -0,0 +1,67 @@
+/*
+ * Copyright 2014 otros.systems@gmail.com
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package pl.otros.swing.suggest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generated test data for benchmarks.
+ */
+final class Dictionaries {
+
+  private static final String[] PACKAGES = {"pl", "com", "org", "net", "otros", "swing", "suggest", "logging", "parser", "io"};
+  private static final String[] CLASSES = {"Logger", "Parser", "Importer", "Thread", "Handler", "Factory", "Source", "Renderer"};
+
+  private Dictionaries() {
+  }
+
+  /**
+   * @return suggestions looking like logger names, in random order
+   */
+  static List<BasicSuggestion> loggerNames(int count) {
+    final Random random = new Random(count);
+    final ArrayList<BasicSuggestion> result = new ArrayList<>(count);
+    final StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < count; i++) {
+      sb.setLength(0);
+      final int depth = 2 + random.nextInt(4);
+      for (int d = 0; d < depth; d++) {
+        sb.append(PACKAGES[random.nextInt(PACKAGES.length)]).append('.');
+      }
+      sb.append(CLASSES[random.nextInt(CLASSES.length)]).append(i);
+      final String name = sb.toString();
+      result.add(new BasicSuggestion(name, name));
+    }
+    return result;
+  }
+
+  /**
+   * @return text of words separated by spaces and new lines
+   */
+  static String text(int length) {
+    final Random random = new Random(length);
+    final StringBuilder sb = new StringBuilder(length);
+    while (sb.length() < length) {
+      sb.append(PACKAGES[random.nextInt(PACKAGES.length)]);
+      sb.append(random.nextInt(10) == 0 ? '\n' : ' ');
+    }
+    sb.setLength(length);
+    return sb.toString();
+  }
+}
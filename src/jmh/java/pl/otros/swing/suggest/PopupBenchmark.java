@@ -0,0 +1,90 @@
+/*
+ * Copyright 2014 otros.systems@gmail.com
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package pl.otros.swing.suggest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.swing.*;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Construction of popup content in headless mode, without showing suggestion window. Popup switches between two
+ * lists without common suggestions, so every row is replaced instead of reconciled as unchanged.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Benchmark)
+public class PopupBenchmark {
+
+  @Param({"100", "5000"})
+  public int resultSize;
+
+  private List<BasicSuggestion> suggestions;
+  private List<BasicSuggestion> otherSuggestions;
+  private boolean other;
+  private SuggestionQuery query;
+  private ComponentSuggestionPopup<BasicSuggestion> componentPopup;
+  private ListSuggestionPopup<BasicSuggestion> listPopup;
+
+  @Setup
+  public void setUp() {
+    suggestions = Dictionaries.loggerNames(resultSize);
+    otherSuggestions = suggestions.stream()
+      .map(s -> new BasicSuggestion(s.getToDisplay() + "$1", s.getToInsert() + "$1"))
+      .collect(Collectors.toList());
+    query = new SuggestionQuery("", 0);
+    final SuggestionRenderer<BasicSuggestion> renderer = suggestion -> new JLabel(suggestion.getToDisplay());
+    final SuggestionDocumentListener<BasicSuggestion> owner =
+      new SuggestionDocumentListener<>(new JTextField(), q -> Collections.emptyList(), renderer, value -> {
+      });
+    componentPopup = new ComponentSuggestionPopup<>(owner, renderer);
+    listPopup = new ListSuggestionPopup<>(owner, renderer);
+  }
+
+  @Benchmark
+  public JComponent componentPopup() {
+    componentPopup.setSuggestions(nextSuggestions(), query);
+    return componentPopup.getView();
+  }
+
+  @Benchmark
+  public JComponent listPopup() {
+    listPopup.setSuggestions(nextSuggestions(), query);
+    return listPopup.getView();
+  }
+
+  private List<BasicSuggestion> nextSuggestions() {
+    other = !other;
+    return other ? otherSuggestions : suggestions;
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2014 otros.systems@gmail.com
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package pl.otros.swing.suggest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.PlainDocument;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of building suggestion query from document and reading token before caret.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QueryBenchmark {
+
+  @Param({"1000", "100000"})
+  public int documentLength;
+
+  private PlainDocument document;
+  private int caretLocation;
+
+  @Setup
+  public void setUp() throws BadLocationException {
+    document = new PlainDocument();
+    document.insertString(0, Dictionaries.text(documentLength), null);
+    caretLocation = documentLength / 2;
+  }
+
+  @Benchmark
+  public CharSequence copyText() throws BadLocationException {
+    final String text = document.getText(0, document.getLength()).replaceAll("\r\n", "\n");
+    return new SuggestionQuery(text, caretLocation, caretLocation, caretLocation).getTokenBeforeCaret();
+  }
+
+  @Benchmark
+  public CharSequence documentView() {
+    final DocumentCharSequence text = new DocumentCharSequence(document);
+    return new SuggestionQuery(text, caretLocation, caretLocation, caretLocation).getTokenBeforeCaret();
+  }
+}
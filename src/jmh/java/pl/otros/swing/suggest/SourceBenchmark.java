@@ -0,0 +1,107 @@
+/*
+ * Copyright 2014 otros.systems@gmail.com
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package pl.otros.swing.suggest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookup of suggestions in dictionaries of different sizes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class SourceBenchmark {
+
+  private static final int MAX_RESULTS = 50;
+
+  @Param({"1000", "100000", "1000000"})
+  public int dictionarySize;
+
+  private List<BasicSuggestion> dictionary;
+  private SuggestionSource<BasicSuggestion> linearSource;
+  private PrefixIndexSuggestionSource prefixIndexSource;
+  private FuzzySuggestionSource<BasicSuggestion> fuzzySource;
+  private Path dictionaryFile;
+  private MappedDictionarySuggestionSource mappedSource;
+  private SuggestionQuery query;
+
+  @Setup
+  public void setUp() throws IOException {
+    dictionary = Dictionaries.loggerNames(dictionarySize);
+    linearSource = query -> {
+      final String token = query.getTokenBeforeCaret().toString();
+      final ArrayList<BasicSuggestion> result = new ArrayList<>();
+      for (BasicSuggestion suggestion : dictionary) {
+        if (suggestion.getToDisplay().startsWith(token)) {
+          result.add(suggestion);
+          if (result.size() == MAX_RESULTS) {
+            break;
+          }
+        }
+      }
+      return result;
+    };
+    prefixIndexSource = new PrefixIndexSuggestionSource(dictionary, false, MAX_RESULTS);
+    fuzzySource = new FuzzySuggestionSource<>(dictionary, BasicSuggestion::getToDisplay, MAX_RESULTS);
+    dictionaryFile = Files.createTempFile("suggestions", ".dict");
+    dictionaryFile.toFile().deleteOnExit();
+    MappedDictionaryWriter.write(dictionary, dictionaryFile, false);
+    mappedSource = new MappedDictionarySuggestionSource(dictionaryFile, MAX_RESULTS);
+    final String text = "logger " + dictionary.get(dictionary.size() / 2).getToDisplay().substring(0, 8);
+    query = new SuggestionQuery(text, text.length());
+  }
+
+  @Benchmark
+  public List<BasicSuggestion> linearScan() {
+    return linearSource.getSuggestions(query);
+  }
+
+  @Benchmark
+  public List<BasicSuggestion> prefixIndex() {
+    return prefixIndexSource.getSuggestions(query);
+  }
+
+  @Benchmark
+  public List<BasicSuggestion> mappedDictionary() {
+    return mappedSource.getSuggestions(query);
+  }
+
+  @Benchmark
+  public List<FuzzyMatch<BasicSuggestion>> fuzzy() {
+    return fuzzySource.getSuggestions(query);
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2014 otros.systems@gmail.com
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package pl.otros.swing.suggest;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scheduling policy adapting delay to measured duration of queries and typing cadence of user.
+ * <p>
+ * Cheap sources (average query shorter than 1 ms) are queried after minimal delay. For expensive sources delay grows
+ * with query duration, but it is not longer than 1.5 of average interval between keystrokes, so source is queried
+ * as soon as user pauses typing. Delay is always between minimal and maximal delay. Averages are exponentially
+ * weighted, intervals longer than {@link #MAX_TYPING_INTERVAL} are treated as pauses and ignored.
+ * </p>
+ */
+public class AdaptiveSchedulingPolicy implements SchedulingPolicy {
+
+  /**
+   * Changes closer than this are treated as one keystroke (for example document and caret change)
+   */
+  static final long MIN_TYPING_INTERVAL = 10;
+  static final long MAX_TYPING_INTERVAL = 2000;
+  private static final double SMOOTHING = 0.2;
+  private static final double LATENCY_MULTIPLIER = 4;
+  private static final double TYPING_INTERVAL_MULTIPLIER = 1.5;
+  private static final double CHEAP_QUERY_MILLIS = 1;
+
+  private final int minDelay;
+  private final int maxDelay;
+  private final boolean leadingEdge;
+  private double averageQueryMillis = -1;
+  private double averageTypingInterval = 200;
+  private long lastChange = 0;
+
+  public AdaptiveSchedulingPolicy() {
+    this(0, FixedDelaySchedulingPolicy.DEFAULT_DELAY, false);
+  }
+
+  /**
+   * @param minDelay delay used for cheap sources
+   * @param maxDelay maximal delay, used also before first query is measured
+   * @param leadingEdge true if source should be queried on first change after idle period
+   */
+  public AdaptiveSchedulingPolicy(int minDelay, int maxDelay, boolean leadingEdge) {
+    this.minDelay = minDelay;
+    this.maxDelay = maxDelay;
+    this.leadingEdge = leadingEdge;
+  }
+
+  @Override
+  public int getDelay() {
+    if (averageQueryMillis < 0) {
+      return maxDelay;
+    }
+    if (averageQueryMillis < CHEAP_QUERY_MILLIS) {
+      return minDelay;
+    }
+    final double delay = Math.min(averageQueryMillis * LATENCY_MULTIPLIER, averageTypingInterval * TYPING_INTERVAL_MULTIPLIER);
+    return (int) Math.max(minDelay, Math.min(maxDelay, delay));
+  }
+
+  @Override
+  public boolean isLeadingEdge() {
+    return leadingEdge;
+  }
+
+  @Override
+  public void changed(long timeMillis) {
+    final long interval = timeMillis - lastChange;
+    if (interval >= MIN_TYPING_INTERVAL && interval < MAX_TYPING_INTERVAL) {
+      averageTypingInterval = average(averageTypingInterval, interval);
+    }
+    lastChange = timeMillis;
+  }
+
+  @Override
+  public void queryCompleted(long durationNanos) {
+    final double millis = durationNanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    averageQueryMillis = averageQueryMillis < 0 ? millis : average(averageQueryMillis, millis);
+  }
+
+  private static double average(double average, double value) {
+    return average + SMOOTHING * (value - average);
+  }
+
+  @Override
+  public String toString() {
+    return "AdaptiveSchedulingPolicy{" +
+      "delay=" + getDelay() +
+      ", averageQueryMillis=" + averageQueryMillis +
+      ", averageTypingInterval=" + averageTypingInterval +
+      '}';
+  }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2014 otros.systems@gmail.com
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package pl.otros.swing.suggest;
+
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Suggestion source caching results of delegate source. Cache is bounded by number of entries (least recently used
+ * entries are evicted first) and optionally by time to live. Cached results can be kept by soft references, so
+ * they are released when JVM is running out of memory.
+ *
+ * @param <T> Suggestion type
+ */
+public class CachingSuggestionSource<T> implements SuggestionSource<T> {
+
+  private final SuggestionSource<T> suggestionSource;
+  private final Function<SuggestionQuery, ?> keyExtractor;
+  private final int maxSize;
+  private final long timeToLiveNanos;
+  private final boolean softValues;
+  private final LinkedHashMap<Object, CacheEntry<T>> cache;
+  private final AtomicLong hitCount = new AtomicLong();
+  private final AtomicLong missCount = new AtomicLong();
+  private final AtomicLong evictionCount = new AtomicLong();
+  private volatile SuggestionMetricsListener metricsListener;
+
+  /**
+   * Cache results by whole query.
+   * @param suggestionSource source of suggestions
+   * @param maxSize maximum number of cached queries
+   * @param timeToLive time after which cached results expire, 0 if results should not expire
+   * @param unit unit of time to live
+   */
+  public CachingSuggestionSource(SuggestionSource<T> suggestionSource, int maxSize, long timeToLive, TimeUnit unit) {
+    this(suggestionSource, wholeQuery(), maxSize, timeToLive, unit, false);
+  }
+
+  /**
+   * @param suggestionSource source of suggestions
+   * @param keyExtractor creates cache key from query, queries with equal keys have the same results
+   * @param maxSize maximum number of cached queries
+   * @param timeToLive time after which cached results expire, 0 if results should not expire
+   * @param unit unit of time to live
+   * @param softValues true if results should be kept using soft references
+   */
+  public CachingSuggestionSource(SuggestionSource<T> suggestionSource, Function<SuggestionQuery, ?> keyExtractor,
+                                 int maxSize, long timeToLive, TimeUnit unit, boolean softValues) {
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException("Max size have to be positive: " + maxSize);
+    }
+    this.suggestionSource = suggestionSource;
+    this.keyExtractor = keyExtractor;
+    this.maxSize = maxSize;
+    this.timeToLiveNanos = unit.toNanos(timeToLive);
+    this.softValues = softValues;
+    this.cache = new LinkedHashMap<Object, CacheEntry<T>>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Object, CacheEntry<T>> eldest) {
+        final boolean evict = size() > CachingSuggestionSource.this.maxSize;
+        if (evict) {
+          evictionCount.incrementAndGet();
+        }
+        return evict;
+      }
+    };
+  }
+
+  /**
+   * Key extractor using whole query. Key is a copy of query text, so it doesn't keep (and doesn't change with)
+   * text view of query, like {@link DocumentCharSequence}.
+   */
+  public static Function<SuggestionQuery, SuggestionQuery> wholeQuery() {
+    return query -> new SuggestionQuery(query.getValue(), query.getCaretLocation(), query.getSelectionStart(), query.getSelectionEnd())
+      .page(query.getOffset(), query.getLimit());
+  }
+
+  /**
+   * Key extractor using only token before caret, see {@link SuggestionQuery#getTokenBeforeCaret()}, and requested page.
+   */
+  public static Function<SuggestionQuery, String> tokenBeforeCaret() {
+    return query -> {
+      final String token = query.getTokenBeforeCaret().toString();
+      if (query.getOffset() == 0 && query.getLimit() == SuggestionQuery.NO_LIMIT) {
+        return token;
+      }
+      return token + '\u0000' + query.getOffset() + ':' + query.getLimit();
+    };
+  }
+
+  @Override
+  public List<T> getSuggestions(SuggestionQuery query) {
+    final Object key = keyExtractor.apply(query);
+    final List<T> cached = lookup(key);
+    final SuggestionMetricsListener listener = metricsListener;
+    if (cached != null) {
+      hitCount.incrementAndGet();
+      if (listener != null) {
+        listener.cacheAccessed(true);
+      }
+      return cached;
+    }
+    missCount.incrementAndGet();
+    if (listener != null) {
+      listener.cacheAccessed(false);
+    }
+    final List<T> suggestions = Collections.unmodifiableList(new ArrayList<>(suggestionSource.getSuggestions(query)));
+    if (!Thread.currentThread().isInterrupted()) {
+      //interrupted query can return partial results
+      synchronized (cache) {
+        cache.put(key, new CacheEntry<>(suggestions, System.nanoTime(), softValues));
+      }
+    }
+    return suggestions;
+  }
+
+  private List<T> lookup(Object key) {
+    synchronized (cache) {
+      final CacheEntry<T> entry = cache.get(key);
+      if (entry == null) {
+        return null;
+      }
+      final List<T> suggestions = entry.getSuggestions();
+      if (suggestions == null || timeToLiveNanos > 0 && System.nanoTime() - entry.created > timeToLiveNanos) {
+        cache.remove(key);
+        evictionCount.incrementAndGet();
+        return null;
+      }
+      return suggestions;
+    }
+  }
+
+  /**
+   * Set listener notified about cache hits and misses, null to remove listener.
+   */
+  public void setMetricsListener(SuggestionMetricsListener metricsListener) {
+    this.metricsListener = metricsListener;
+  }
+
+  public void invalidateAll() {
+    synchronized (cache) {
+      cache.clear();
+    }
+  }
+
+  public int size() {
+    synchronized (cache) {
+      return cache.size();
+    }
+  }
+
+  public long getHitCount() {
+    return hitCount.get();
+  }
+
+  public long getMissCount() {
+    return missCount.get();
+  }
+
+  /**
+   * @return number of entries removed because of size limit, expiration or garbage collection of soft values
+   */
+  public long getEvictionCount() {
+    return evictionCount.get();
+  }
+
+  @Override
+  public String toString() {
+    return "CachingSuggestionSource{" +
+      "size=" + size() +
+      ", hitCount=" + hitCount +
+      ", missCount=" + missCount +
+      ", evictionCount=" + evictionCount +
+      '}';
+  }
+
+  private static class CacheEntry<T> {
+    private final Object suggestions;
+    private final long created;
+
+    CacheEntry(List<T> suggestions, long created, boolean soft) {
+      this.suggestions = soft ? new SoftReference<>(suggestions) : suggestions;
+      this.created = created;
+    }
+
+    @SuppressWarnings("unchecked")
+    List<T> getSuggestions() {
+      if (suggestions instanceof SoftReference) {
+        return ((SoftReference<List<T>>) suggestions).get();
+      }
+      return (List<T>) suggestions;
+    }
+  }
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright 2014 otros.systems@gmail.com
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package pl.otros.swing.suggest;
+
+import javax.swing.*;
+import javax.swing.FocusManager;
+import java.awt.*;
+import java.awt.event.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Popup creating one component for every suggestion using {@link SuggestionRenderer}. When suggestions are replaced,
+ * rows of suggestions displayed before are reused, only components of new suggestions are created.
+ * With {@link RecyclingSuggestionRenderer} row components are pooled and bound to new suggestions.
+ */
+class ComponentSuggestionPopup<T> implements SuggestionPopup<T> {
+
+  private final JPanel suggestionPanel = new JPanel(new GridLayout(0, 1));
+  private final SuggestionDocumentListener<T> owner;
+  private final SuggestionRenderer<T> suggestionRenderer;
+  private final List<Row> rows = new ArrayList<>();
+  private final List<Row> pool = new ArrayList<>();
+  private SuggestionQuery query;
+
+  ComponentSuggestionPopup(SuggestionDocumentListener<T> owner, SuggestionRenderer<T> suggestionRenderer) {
+    this.owner = owner;
+    this.suggestionRenderer = suggestionRenderer;
+  }
+
+  @Override
+  public JComponent getView() {
+    return suggestionPanel;
+  }
+
+  @Override
+  public void focusFirstSuggestion() {
+    if (!rows.isEmpty()) {
+      rows.get(0).component.requestFocus();
+    }
+  }
+
+  @Override
+  public boolean isPopupComponent(Component component) {
+    return component != null && component.getParent() == suggestionPanel;
+  }
+
+  @Override
+  public boolean setSuggestions(List<T> suggestions, SuggestionQuery query) {
+    this.query = query;
+    if (suggestionRenderer instanceof RecyclingSuggestionRenderer) {
+      return bindSuggestions(suggestions, (RecyclingSuggestionRenderer<T>) suggestionRenderer);
+    }
+    //equal suggestions can be displayed many times, every row is reused once
+    final Map<T, Deque<Row>> oldRows = new HashMap<>(rows.size() * 2);
+    for (Row row : rows) {
+      oldRows.computeIfAbsent(row.suggestion, s -> new ArrayDeque<>()).add(row);
+    }
+    final List<Row> newRows = new ArrayList<>(suggestions.size());
+    boolean changed = suggestions.size() != rows.size();
+    for (int i = 0; i < suggestions.size(); i++) {
+      final T suggestion = suggestions.get(i);
+      final Deque<Row> equalRows = oldRows.get(suggestion);
+      Row row = equalRows != null ? equalRows.poll() : null;
+      if (row == null) {
+        row = createRow(suggestion, suggestionRenderer.getSuggestionComponent(suggestion));
+      }
+      changed |= i >= rows.size() || rows.get(i) != row;
+      newRows.add(row);
+    }
+    if (!changed) {
+      return false;
+    }
+    for (Deque<Row> removed : oldRows.values()) {
+      for (Row row : removed) {
+        suggestionPanel.remove(row.component);
+      }
+    }
+    for (int i = 0; i < newRows.size(); i++) {
+      final JComponent component = newRows.get(i).component;
+      if (i >= suggestionPanel.getComponentCount() || suggestionPanel.getComponent(i) != component) {
+        suggestionPanel.add(component, i);
+      }
+    }
+    rows.clear();
+    rows.addAll(newRows);
+    clearHighlight();
+    suggestionPanel.revalidate();
+    return true;
+  }
+
+  /**
+   * Binds suggestions to rows at the same position, rows are taken from pool or returned to it when number of
+   * suggestions is changed.
+   */
+  private boolean bindSuggestions(List<T> suggestions, RecyclingSuggestionRenderer<T> renderer) {
+    boolean changed = false;
+    for (int i = 0; i < suggestions.size(); i++) {
+      final T suggestion = suggestions.get(i);
+      if (i < rows.size()) {
+        final Row row = rows.get(i);
+        if (!Objects.equals(row.suggestion, suggestion)) {
+          row.suggestion = suggestion;
+          renderer.bind(row.component, suggestion);
+          changed = true;
+        }
+      } else {
+        addRow(suggestion);
+        changed = true;
+      }
+    }
+    while (rows.size() > suggestions.size()) {
+      final Row row = rows.remove(rows.size() - 1);
+      suggestionPanel.remove(row.component);
+      pool.add(row);
+      changed = true;
+    }
+    if (changed) {
+      clearHighlight();
+      suggestionPanel.revalidate();
+    }
+    return changed;
+  }
+
+  @Override
+  public void appendSuggestions(List<T> suggestions) {
+    for (final T suggestion : suggestions) {
+      addRow(suggestion);
+    }
+    suggestionPanel.revalidate();
+  }
+
+  private void addRow(T suggestion) {
+    final Row row;
+    if (suggestionRenderer instanceof RecyclingSuggestionRenderer) {
+      final RecyclingSuggestionRenderer<T> renderer = (RecyclingSuggestionRenderer<T>) suggestionRenderer;
+      row = pool.isEmpty() ? createRow(null, renderer.create()) : pool.remove(pool.size() - 1);
+      row.suggestion = suggestion;
+      renderer.bind(row.component, suggestion);
+    } else {
+      row = createRow(suggestion, suggestionRenderer.getSuggestionComponent(suggestion));
+    }
+    rows.add(row);
+    suggestionPanel.add(row.component);
+  }
+
+  private Row createRow(T suggestion, JComponent suggestionComponent) {
+    final Row row = new Row(suggestion, suggestionComponent);
+    suggestionComponent.setFocusable(true);
+    suggestionComponent.setOpaque(true);
+    suggestionComponent.setBorder(BorderFactory.createLineBorder(suggestionPanel.getBackground()));
+    suggestionComponent.addKeyListener(new KeyAdapter() {
+      @Override
+      public void keyPressed(KeyEvent e) {
+        final int keyCode = e.getKeyCode();
+        final boolean first = rows.get(0) == row;
+        if (keyCode == KeyEvent.VK_UP && first) {
+          owner.returnFocusToText();
+        } else if (keyCode == KeyEvent.VK_UP) {
+          FocusManager.getCurrentManager().focusPreviousComponent();
+        } else if (keyCode == KeyEvent.VK_DOWN && row != rows.get(rows.size() - 1)) {
+          FocusManager.getCurrentManager().focusNextComponent();
+        } else if (keyCode == KeyEvent.VK_ENTER) {
+          owner.suggestionSelected(row.suggestion, query);
+        } else if (keyCode == KeyEvent.VK_ESCAPE) {
+          owner.cancelSuggestions();
+        }
+      }
+
+      @Override
+      public void keyTyped(KeyEvent e) {
+        owner.forwardKeyTyped(e);
+      }
+    });
+    suggestionComponent.addFocusListener(new FocusListener() {
+      @Override
+      public void focusGained(final FocusEvent e) {
+        highlightSuggestion(row);
+        SwingUtilities.invokeLater(() -> {
+          final Component component = e.getComponent();
+          suggestionPanel.scrollRectToVisible(component.getBounds());
+        });
+
+      }
+
+      @Override
+      public void focusLost(FocusEvent e) {
+        removeHighlightSuggestion(suggestionComponent);
+      }
+    });
+    suggestionComponent.addMouseListener(new MouseAdapter() {
+
+      @Override
+      public void mouseClicked(MouseEvent e) {
+        owner.suggestionSelected(row.suggestion, query);
+      }
+
+      @Override
+      public void mouseEntered(MouseEvent e) {
+        highlightSuggestion(row);
+      }
+
+      @Override
+      public void mouseExited(MouseEvent e) {
+        removeHighlightSuggestion(suggestionComponent);
+      }
+
+    });
+    return row;
+  }
+
+  private void clearHighlight() {
+    for (Row row : rows) {
+      removeHighlightSuggestion(row.component);
+    }
+  }
+
+  private void removeHighlightSuggestion(JComponent suggestionComponent) {
+    suggestionComponent.setBorder(BorderFactory.createLineBorder(suggestionPanel.getBackground()));
+  }
+
+
+  private void highlightSuggestion(Row row) {
+    clearHighlight();
+    final JComponent suggestionComponent = row.component;
+    suggestionComponent.setBorder(BorderFactory.createLineBorder(suggestionComponent.getForeground()));
+    suggestionPanel.scrollRectToVisible(suggestionComponent.getBounds());
+    final int index = rows.indexOf(row);
+    if (index >= 0) {
+      owner.suggestionHighlighted(index);
+    }
+  }
+
+  /**
+   * Suggestion with its component, listeners of component are bound to row
+   */
+  private class Row {
+    private T suggestion;
+    private final JComponent component;
+
+    Row(T suggestion, JComponent component) {
+      this.suggestion = suggestion;
+      this.component = component;
+    }
+  }
+
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2014 otros.systems@gmail.com
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package pl.otros.swing.suggest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Suggestion source querying child sources concurrently. Every child source have own timeout, results of sources
+ * which did not finish on time are skipped in this query, but sources are not interrupted and can finish
+ * in background (for example to fill cache for next query). Results are merged in order of sources, duplicated
+ * suggestions (by {@link Object#equals(Object)}) are removed and merged suggestions are optionally sorted.
+ * <p>
+ * Executor should be able to run all child sources at the same time. If thread querying composite source
+ * is interrupted, queries of child sources are cancelled.
+ * </p>
+ *
+ * @param <T> Suggestion type
+ */
+public class CompositeSuggestionSource<T> implements SuggestionSource<T> {
+
+  private final Executor executor;
+  private final Comparator<? super T> ranking;
+  private final List<ChildSource<T>> sources = new CopyOnWriteArrayList<>();
+
+  /**
+   * @param executor executor querying child sources
+   */
+  public CompositeSuggestionSource(Executor executor) {
+    this(executor, null);
+  }
+
+  /**
+   * @param executor executor querying child sources
+   * @param ranking order of merged suggestions, if null suggestions are in order of sources
+   */
+  public CompositeSuggestionSource(Executor executor, Comparator<? super T> ranking) {
+    this.executor = executor;
+    this.ranking = ranking;
+  }
+
+  /**
+   * @param source child source
+   * @param timeout maximum time of waiting for results of source
+   * @param unit unit of timeout
+   */
+  public void addSource(SuggestionSource<? extends T> source, long timeout, TimeUnit unit) {
+    sources.add(new ChildSource<>(source, unit.toNanos(timeout)));
+  }
+
+  public void removeSource(SuggestionSource<? extends T> source) {
+    sources.removeIf(child -> child.source == source);
+  }
+
+  @Override
+  public List<T> getSuggestions(SuggestionQuery query) {
+    final long start = System.nanoTime();
+    final List<ChildSource<T>> children = new ArrayList<>(sources);
+    final List<FutureTask<? extends List<? extends T>>> tasks = new ArrayList<>(children.size());
+    //sources are queried concurrently and can outlive this call, text view of query is not thread safe
+    final SuggestionQuery snapshot = query.snapshot();
+    //every source returns suggestions from first one, page is selected after merging
+    final SuggestionQuery childQuery = query.getOffset() == 0
+      ? snapshot
+      : snapshot.page(0, (int) Math.min((long) query.getOffset() + query.getLimit(), SuggestionQuery.NO_LIMIT));
+    for (ChildSource<T> child : children) {
+      final FutureTask<? extends List<? extends T>> task = new FutureTask<>(() -> child.source.getSuggestions(childQuery));
+      tasks.add(task);
+      executor.execute(task);
+    }
+    final LinkedHashSet<T> merged = new LinkedHashSet<>();
+    for (int i = 0; i < children.size(); i++) {
+      final ChildSource<T> child = children.get(i);
+      final FutureTask<? extends List<? extends T>> task = tasks.get(i);
+      try {
+        merged.addAll(task.get(Math.max(0, child.timeoutNanos - (System.nanoTime() - start)), TimeUnit.NANOSECONDS));
+      } catch (TimeoutException e) {
+        //source will finish in background
+      } catch (ExecutionException e) {
+        e.printStackTrace();
+      } catch (InterruptedException e) {
+        tasks.forEach(t -> t.cancel(true));
+        Thread.currentThread().interrupt();
+        break;
+      }
+    }
+    final ArrayList<T> result = new ArrayList<>(merged);
+    if (ranking != null) {
+      Collections.sort(result, ranking);
+    }
+    return query.selectPage(result);
+  }
+
+  private static class ChildSource<T> {
+    private final SuggestionSource<? extends T> source;
+    private final long timeoutNanos;
+
+    ChildSource(SuggestionSource<? extends T> source, long timeoutNanos) {
+      this.source = source;
+      this.timeoutNanos = timeoutNanos;
+    }
+  }
+}
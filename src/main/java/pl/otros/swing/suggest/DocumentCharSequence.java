@@ -0,0 +1,107 @@
+/*
+ * Copyright 2014 otros.systems@gmail.com
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package pl.otros.swing.suggest;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Segment;
+
+/**
+ * Read only view of document content. Characters are read using {@link Document#getText(int, int, Segment)}
+ * with partial return, so content of document is not copied. View reflects current content of document, length
+ * is fixed when view is created.
+ * <p>
+ * View is not thread safe, but separate views of the same document can be used by different threads.
+ * </p>
+ */
+public class DocumentCharSequence implements CharSequence {
+
+  /**
+   * Number of characters loaded before requested index, when text is read backward
+   */
+  private static final int BACKWARD_CHUNK = 256;
+
+  private final Document document;
+  private final int offset;
+  private final int length;
+  private final Segment segment = new Segment();
+  private int segmentStart = 0;
+  private int segmentEnd = 0;
+
+  public DocumentCharSequence(Document document) {
+    this(document, 0, document.getLength());
+  }
+
+  public DocumentCharSequence(Document document, int offset, int length) {
+    this.document = document;
+    this.offset = offset;
+    this.length = length;
+    segment.setPartialReturn(true);
+  }
+
+  @Override
+  public int length() {
+    return length;
+  }
+
+  @Override
+  public char charAt(int index) {
+    if (index < 0 || index >= length) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", length: " + length);
+    }
+    if (index < segmentStart || index >= segmentEnd) {
+      load(index);
+    }
+    return segment.array[segment.offset + index - segmentStart];
+  }
+
+  private void load(int index) {
+    if (index < segmentStart) {
+      load(index, Math.max(0, index - BACKWARD_CHUNK));
+    }
+    if (index < segmentStart || index >= segmentEnd) {
+      load(index, index);
+    }
+  }
+
+  private void load(int index, int from) {
+    try {
+      document.getText(offset + from, length - from, segment);
+    } catch (BadLocationException e) {
+      throw new IndexOutOfBoundsException("Document was changed, can't read index " + index + ": " + e.getMessage());
+    }
+    segmentStart = from;
+    segmentEnd = from + segment.count;
+  }
+
+  @Override
+  public CharSequence subSequence(int start, int end) {
+    if (start < 0 || end > length || start > end) {
+      throw new IndexOutOfBoundsException("Start: " + start + ", end: " + end + ", length: " + length);
+    }
+    return new DocumentCharSequence(document, offset + start, end - start);
+  }
+
+  @Override
+  public String toString() {
+    try {
+      return document.getText(offset, length);
+    } catch (BadLocationException e) {
+      throw new IndexOutOfBoundsException("Document was changed: " + e.getMessage());
+    }
+  }
+}
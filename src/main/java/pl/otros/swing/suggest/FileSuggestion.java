@@ -0,0 +1,104 @@
+/*
+ * Copyright 2014 otros.systems@gmail.com
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package pl.otros.swing.suggest;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * File with attributes read while directory was listed, so rendering suggestion do not require file system access.
+ * Suggestions are equal if they have the same path and attributes, so changed file is rendered again.
+ */
+public class FileSuggestion {
+
+  private final Path path;
+  private final String name;
+  private final boolean directory;
+  private final long size;
+  private final long lastModified;
+
+  public FileSuggestion(Path path, BasicFileAttributes attributes) {
+    this(path, attributes.isDirectory(), attributes.size(), attributes.lastModifiedTime().toMillis());
+  }
+
+  public FileSuggestion(Path path, boolean directory, long size, long lastModified) {
+    this.path = path;
+    final Path fileName = path.getFileName();
+    this.name = fileName != null ? fileName.toString() : path.toString();
+    this.directory = directory;
+    this.size = size;
+    this.lastModified = lastModified;
+  }
+
+  public Path getPath() {
+    return path;
+  }
+
+  public File getFile() {
+    return path.toFile();
+  }
+
+  /**
+   * @return name of file, or whole path for root directories
+   */
+  public String getName() {
+    return name;
+  }
+
+  public boolean isDirectory() {
+    return directory;
+  }
+
+  public long getSize() {
+    return size;
+  }
+
+  public long getLastModified() {
+    return lastModified;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+
+    FileSuggestion that = (FileSuggestion) o;
+    return directory == that.directory
+      && size == that.size
+      && lastModified == that.lastModified
+      && path.equals(that.path);
+  }
+
+  @Override
+  public int hashCode() {
+    int result = path.hashCode();
+    result = 31 * result + (directory ? 1 : 0);
+    result = 31 * result + (int) (size ^ (size >>> 32));
+    result = 31 * result + (int) (lastModified ^ (lastModified >>> 32));
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return "FileSuggestion{" +
+      "path=" + path +
+      ", directory=" + directory +
+      ", size=" + size +
+      '}';
+  }
+}
@@ -14,17 +14,19 @@
  *    limitations under the License.
  */
 
-package pl.otros.swing.suggest.demo;
-
-import pl.otros.swing.suggest.SuggestionRenderer;
+package pl.otros.swing.suggest;
 
 import javax.swing.*;
-import java.io.File;
 import java.text.DecimalFormat;
 
 /**
+ * Renders file suggestion with icon and size. Only attributes read while listing directory are used, so rendering
+ * do not access file system.
  */
-class FileSuggestionRenderer implements SuggestionRenderer<File> {
+public class FileSuggestionRenderer implements RecyclingSuggestionRenderer<FileSuggestion> {
+
+  private static final String[] UNITS = new String[]{"B", "KB", "MB", "GB", "TB", "PB", "EB"};
+  private static final ThreadLocal<DecimalFormat> SIZE_FORMAT = ThreadLocal.withInitial(() -> new DecimalFormat("#,##0.#"));
 
   private final ImageIcon folder;
   private final ImageIcon file;
@@ -35,20 +37,25 @@ class FileSuggestionRenderer implements SuggestionRenderer<File> {
   }
 
   @Override
-  public JComponent getSuggestionComponent(File suggestion) {
+  public JComponent create() {
+    return new JLabel("", SwingConstants.LEFT);
+  }
+
+  @Override
+  public void bind(JComponent component, FileSuggestion suggestion) {
     Icon i = suggestion.isDirectory() ? folder : file;
-    StringBuilder sb = new StringBuilder(suggestion.getAbsolutePath());
-    if (suggestion.isFile()) {
-      long length = suggestion.length();
-      sb.append(" [").append(readableFileSize(length)).append("]");
+    StringBuilder sb = new StringBuilder(suggestion.getPath().toString());
+    if (!suggestion.isDirectory()) {
+      sb.append(" [").append(readableFileSize(suggestion.getSize())).append("]");
     }
-    return new JLabel(sb.toString(), i, SwingConstants.LEFT);
+    final JLabel label = (JLabel) component;
+    label.setText(sb.toString());
+    label.setIcon(i);
   }
 
   public static String readableFileSize(long size) {
     if (size <= 0) return "0";
-    final String[] units = new String[]{"B", "KB", "MB", "GB", "TB"};
-    int digitGroups = (int) (Math.log10(size) / Math.log10(1024));
-    return new DecimalFormat("#,##0.#").format(size / Math.pow(1024, digitGroups)) + " " + units[digitGroups];
+    int digitGroups = (63 - Long.numberOfLeadingZeros(size)) / 10;
+    return SIZE_FORMAT.get().format(size / (double) (1L << (10 * digitGroups))) + " " + UNITS[digitGroups];
   }
 }
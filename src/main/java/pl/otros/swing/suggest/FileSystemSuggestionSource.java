@@ -0,0 +1,307 @@
+/*
+ * Copyright 2014 otros.systems@gmail.com
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package pl.otros.swing.suggest;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Suggestion source completing file path. Text of query is treated as path, if it points to directory content
+ * of directory is suggested, otherwise files from parent directory starting with file name are suggested.
+ * Directories are suggested before files.
+ * <p>
+ * Directory listings (with file attributes) are cached and invalidated by {@link WatchService}. Directories which
+ * can't be watched (for example on some network file systems) are cached for limited time. Child directories of
+ * highlighted suggestion can be listed in background, see {@link #highlighted(FileSuggestion)}.
+ * </p>
+ */
+public class FileSystemSuggestionSource implements SuggestionSource<FileSuggestion>, HighlightListener<FileSuggestion>, Closeable {
+
+  public static final int DEFAULT_CACHE_SIZE = 64;
+  private static final long UNWATCHED_TIME_TO_LIVE = TimeUnit.SECONDS.toNanos(5);
+  private static final int INTERRUPT_CHECK_INTERVAL = 256;
+  private static final Comparator<FileSuggestion> DIRECTORIES_FIRST = (o1, o2) -> {
+    if (o1.isDirectory() != o2.isDirectory()) {
+      return o1.isDirectory() ? -1 : 1;
+    }
+    return o1.getName().compareTo(o2.getName());
+  };
+
+  private final FileSystem fileSystem;
+  private final int cacheSize;
+  private final LinkedHashMap<Path, Listing> cache;
+  private final ExecutorService prefetchExecutor;
+  private WatchService watchService;
+
+  public FileSystemSuggestionSource() {
+    this(FileSystems.getDefault(), DEFAULT_CACHE_SIZE);
+  }
+
+  /**
+   * @param fileSystem file system of suggested files
+   * @param cacheSize maximum number of cached directory listings
+   */
+  public FileSystemSuggestionSource(FileSystem fileSystem, int cacheSize) {
+    this.fileSystem = fileSystem;
+    this.cacheSize = cacheSize;
+    this.cache = new LinkedHashMap<Path, Listing>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Path, Listing> eldest) {
+        final boolean evict = size() > FileSystemSuggestionSource.this.cacheSize;
+        if (evict) {
+          eldest.getValue().cancel();
+        }
+        return evict;
+      }
+    };
+    prefetchExecutor = Executors.newSingleThreadExecutor(r -> daemon(r, "File suggestions prefetch"));
+    try {
+      watchService = fileSystem.newWatchService();
+      daemon(this::processWatchEvents, "File suggestions watcher").start();
+    } catch (IOException | UnsupportedOperationException e) {
+      watchService = null;
+    }
+  }
+
+  @Override
+  public List<FileSuggestion> getSuggestions(SuggestionQuery query) {
+    final String value = query.getValue();
+    if (value.length() == 0) {
+      return roots();
+    }
+    final Path path;
+    try {
+      path = fileSystem.getPath(value);
+    } catch (InvalidPathException e) {
+      return new ArrayList<>();
+    }
+    final Path parent = path.getParent();
+    final boolean endsWithSeparator = value.endsWith(fileSystem.getSeparator()) || value.endsWith("/");
+    if (endsWithSeparator || parent == null || isCachedDirectory(parent, path)) {
+      final List<FileSuggestion> listing = list(path);
+      if (!listing.isEmpty() || endsWithSeparator || parent == null) {
+        return new ArrayList<>(query.selectPage(listing));
+      }
+    }
+    final String prefix = path.getFileName().toString();
+    final long pageEnd = (long) query.getOffset() + query.getLimit();
+    final ArrayList<FileSuggestion> result = new ArrayList<>();
+    for (FileSuggestion file : list(parent)) {
+      if (file.getName().startsWith(prefix)) {
+        result.add(file);
+        if (result.size() >= pageEnd) {
+          break;
+        }
+      }
+    }
+    return query.selectPage(result);
+  }
+
+  /**
+   * Lists child directories of highlighted directory in background.
+   */
+  @Override
+  public void highlighted(FileSuggestion value) {
+    if (value.isDirectory()) {
+      prefetch(value.getPath());
+    }
+  }
+
+  /**
+   * List directory in background, so next query for this directory is answered from cache
+   */
+  public void prefetch(Path directory) {
+    if (!prefetchExecutor.isShutdown() && getCached(directory) == null) {
+      prefetchExecutor.execute(() -> list(directory));
+    }
+  }
+
+  public void invalidateAll() {
+    synchronized (cache) {
+      cache.values().forEach(Listing::cancel);
+      cache.clear();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    prefetchExecutor.shutdownNow();
+    invalidateAll();
+    if (watchService != null) {
+      watchService.close();
+    }
+  }
+
+  private boolean isCachedDirectory(Path parent, Path path) {
+    final List<FileSuggestion> parentListing = getCached(parent);
+    if (parentListing == null) {
+      return Files.isDirectory(path);
+    }
+    for (FileSuggestion file : parentListing) {
+      if (file.getPath().equals(path)) {
+        return file.isDirectory();
+      }
+    }
+    return false;
+  }
+
+  private List<FileSuggestion> roots() {
+    final ArrayList<FileSuggestion> roots = new ArrayList<>();
+    for (Path root : fileSystem.getRootDirectories()) {
+      roots.add(new FileSuggestion(root, true, 0, 0));
+    }
+    return roots;
+  }
+
+  private List<FileSuggestion> getCached(Path directory) {
+    synchronized (cache) {
+      final Listing listing = cache.get(directory);
+      if (listing == null) {
+        return null;
+      }
+      if (listing.isExpired()) {
+        cache.remove(directory);
+        listing.cancel();
+        return null;
+      }
+      return listing.files;
+    }
+  }
+
+  private List<FileSuggestion> list(Path directory) {
+    final List<FileSuggestion> cached = getCached(directory);
+    if (cached != null) {
+      return cached;
+    }
+    final WatchKey watchKey = watch(directory);
+    final ArrayList<FileSuggestion> files = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+      int count = 0;
+      for (Path path : stream) {
+        if (++count % INTERRUPT_CHECK_INTERVAL == 0 && Thread.currentThread().isInterrupted()) {
+          //partial listing is not cached
+          cancel(watchKey);
+          return files;
+        }
+        try {
+          files.add(new FileSuggestion(path, Files.readAttributes(path, BasicFileAttributes.class)));
+        } catch (IOException e) {
+          //file was deleted or can't be accessed
+        }
+      }
+    } catch (IOException e) {
+      cancel(watchKey);
+      return Collections.emptyList();
+    }
+    Collections.sort(files, DIRECTORIES_FIRST);
+    final List<FileSuggestion> listing = Collections.unmodifiableList(files);
+    synchronized (cache) {
+      final Listing previous = cache.put(directory, new Listing(listing, watchKey, System.nanoTime()));
+      if (previous != null && previous.watchKey != watchKey) {
+        previous.cancel();
+      }
+    }
+    return listing;
+  }
+
+  private WatchKey watch(Path directory) {
+    if (watchService == null) {
+      return null;
+    }
+    try {
+      return directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE,
+        StandardWatchEventKinds.ENTRY_MODIFY);
+    } catch (IOException | UnsupportedOperationException | ClosedWatchServiceException e) {
+      return null;
+    }
+  }
+
+  private void processWatchEvents() {
+    try {
+      while (true) {
+        final WatchKey key = watchService.take();
+        key.pollEvents();
+        final Path directory = (Path) key.watchable();
+        synchronized (cache) {
+          final Listing listing = cache.get(directory);
+          if (listing != null && listing.watchKey == key) {
+            cache.remove(directory);
+          }
+        }
+        key.cancel();
+      }
+    } catch (InterruptedException | ClosedWatchServiceException e) {
+      //source is closed
+    }
+  }
+
+  private static void cancel(WatchKey watchKey) {
+    if (watchKey != null) {
+      watchKey.cancel();
+    }
+  }
+
+  private static Thread daemon(Runnable runnable, String name) {
+    final Thread thread = new Thread(runnable, name);
+    thread.setDaemon(true);
+    return thread;
+  }
+
+  private static class Listing {
+    private final List<FileSuggestion> files;
+    private final WatchKey watchKey;
+    private final long created;
+
+    Listing(List<FileSuggestion> files, WatchKey watchKey, long created) {
+      this.files = files;
+      this.watchKey = watchKey;
+      this.created = created;
+    }
+
+    boolean isExpired() {
+      if (watchKey != null) {
+        //key is cancelled by watcher if directory was changed while it was listed
+        return !watchKey.isValid();
+      }
+      return System.nanoTime() - created > UNWATCHED_TIME_TO_LIVE;
+    }
+
+    void cancel() {
+      FileSystemSuggestionSource.cancel(watchKey);
+    }
+  }
+}
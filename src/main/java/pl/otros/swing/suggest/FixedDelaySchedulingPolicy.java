@@ -0,0 +1,55 @@
+/*
+ * Copyright 2014 otros.systems@gmail.com
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package pl.otros.swing.suggest;
+
+/**
+ * Scheduling policy with constant delay.
+ */
+public class FixedDelaySchedulingPolicy implements SchedulingPolicy {
+
+  public static final int DEFAULT_DELAY = 400;
+
+  private final int delay;
+  private final boolean leadingEdge;
+
+  public FixedDelaySchedulingPolicy() {
+    this(DEFAULT_DELAY, false);
+  }
+
+  public FixedDelaySchedulingPolicy(int delay, boolean leadingEdge) {
+    this.delay = delay;
+    this.leadingEdge = leadingEdge;
+  }
+
+  @Override
+  public int getDelay() {
+    return delay;
+  }
+
+  @Override
+  public boolean isLeadingEdge() {
+    return leadingEdge;
+  }
+
+  @Override
+  public void changed(long timeMillis) {
+  }
+
+  @Override
+  public void queryCompleted(long durationNanos) {
+  }
+}
@@ -0,0 +1,326 @@
+/*
+ * Copyright 2014 otros.systems@gmail.com
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package pl.otros.swing.suggest;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Ranks suggestions by frecency (frequency and recency) of selections. Every selection adds 1 to score of selected
+ * value, score is halved every half life. Selections are counted globally and for query context (by default token
+ * before caret), score in the same context has greater weight.
+ * <p>
+ * Ranking can be persisted to file. File is read by executor when ranking is created, so EDT is not blocked by disk
+ * (selections recorded before file is read are added to stored scores). File is written by executor, selections
+ * made while file is written are saved in next batch.
+ * </p>
+ * <pre>
+ * FrecencyRanking&lt;BasicSuggestion&gt; ranking = new FrecencyRanking&lt;&gt;(BasicSuggestion::getToInsert, ...);
+ * SuggestDecorator.decorate(textField, ranking.rank(source), renderer, ranking.record(selectionListener));
+ * </pre>
+ *
+ * @param <T> Suggestion type
+ */
+public class FrecencyRanking<T> {
+
+  /**
+   * Second format, keys are written as length and UTF-8 bytes, so keys longer than 64 KB can be stored
+   */
+  private static final int FILE_MAGIC = 0x4F534632;
+  private static final double CONTEXT_WEIGHT = 4;
+  private static final char CONTEXT_SEPARATOR = '\u0000';
+  public static final int DEFAULT_MAX_ENTRIES = 10000;
+
+  private final Function<T, String> keyExtractor;
+  private final Function<SuggestionQuery, String> contextExtractor;
+  private final double decayPerMilli;
+  private final int maxEntries;
+  private final Optional<Path> file;
+  private final Executor executor;
+  private final Map<String, Entry> entries = new HashMap<>();
+  private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+  /**
+   * Guarded by this, false until file is read
+   */
+  private boolean loaded;
+
+  /**
+   * Creates ranking kept only in memory, selections in context of token before caret are ranked higher.
+   * @param keyExtractor key identifying suggestion
+   * @param halfLife time after which score of selection is halved
+   * @param unit unit of half life
+   */
+  public FrecencyRanking(Function<T, String> keyExtractor, long halfLife, TimeUnit unit) {
+    this(keyExtractor, query -> query.getTokenBeforeCaret().toString(), halfLife, unit, DEFAULT_MAX_ENTRIES, null, null);
+  }
+
+  /**
+   * @param keyExtractor key identifying suggestion
+   * @param contextExtractor context of query in which suggestion was selected
+   * @param halfLife time after which score of selection is halved
+   * @param unit unit of half life
+   * @param maxEntries maximum number of remembered scores, entries with lowest score are removed first
+   * @param file file storing ranking, null if ranking should not be persisted
+   * @param executor executor writing file, required if file is set
+   */
+  public FrecencyRanking(Function<T, String> keyExtractor, Function<SuggestionQuery, String> contextExtractor,
+                         long halfLife, TimeUnit unit, int maxEntries, Path file, Executor executor) {
+    if (halfLife <= 0) {
+      throw new IllegalArgumentException("Half life have to be positive: " + halfLife);
+    }
+    if (file != null && executor == null) {
+      throw new IllegalArgumentException("Executor is required to persist ranking");
+    }
+    this.keyExtractor = keyExtractor;
+    this.contextExtractor = contextExtractor;
+    this.decayPerMilli = Math.log(2) * TimeUnit.MILLISECONDS.toNanos(1) / unit.toNanos(halfLife);
+    this.maxEntries = maxEntries;
+    this.file = Optional.ofNullable(file);
+    this.executor = executor;
+    loaded = file == null;
+    if (file != null) {
+      executor.execute(this::load);
+    }
+  }
+
+  /**
+   * Source ranking all suggestions before page is selected, so frequently selected suggestion can move to first page.
+   * Source is queried for all suggestions of every page.
+   * @return source returning suggestions of source sorted by descending score, suggestions never selected keep
+   * order of source
+   */
+  public SuggestionSource<T> rank(SuggestionSource<T> suggestionSource) {
+    return query -> {
+      if (query.getOffset() == 0 && query.getLimit() == SuggestionQuery.NO_LIMIT) {
+        return rank(suggestionSource.getSuggestions(query), query);
+      }
+      final List<T> all = suggestionSource.getSuggestions(query.page(0, SuggestionQuery.NO_LIMIT));
+      return query.selectPage(rank(all, query));
+    };
+  }
+
+  /**
+   * @return selection listener recording selection and notifying delegate
+   */
+  public SelectionListener<T> record(SelectionListener<T> delegate) {
+    return result -> {
+      record(result.getValue(), result.getSuggestionSource());
+      delegate.selected(result);
+    };
+  }
+
+  public List<T> rank(List<T> suggestions, SuggestionQuery query) {
+    final long now = System.currentTimeMillis();
+    final String context = contextExtractor.apply(query);
+    final Map<T, Double> scores = new IdentityHashMap<>(suggestions.size() * 2);
+    boolean scored = false;
+    synchronized (this) {
+      if (entries.isEmpty()) {
+        return suggestions;
+      }
+      for (T suggestion : suggestions) {
+        final String key = keyExtractor.apply(suggestion);
+        final double score = score(key, now) + CONTEXT_WEIGHT * score(context + CONTEXT_SEPARATOR + key, now);
+        scores.put(suggestion, score);
+        scored |= score > 0;
+      }
+    }
+    if (!scored) {
+      return suggestions;
+    }
+    final ArrayList<T> ranked = new ArrayList<>(suggestions);
+    ranked.sort(Comparator.comparingDouble((T t) -> scores.get(t)).reversed());
+    return ranked;
+  }
+
+  public void record(T suggestion, SuggestionQuery query) {
+    final long now = System.currentTimeMillis();
+    final String key = keyExtractor.apply(suggestion);
+    synchronized (this) {
+      increment(key, now);
+      increment(contextExtractor.apply(query) + CONTEXT_SEPARATOR + key, now);
+      if (entries.size() > maxEntries) {
+        prune(now);
+      }
+    }
+    scheduleFlush();
+  }
+
+  private void scheduleFlush() {
+    if (file.isPresent() && flushScheduled.compareAndSet(false, true)) {
+      executor.execute(this::flush);
+    }
+  }
+
+  /**
+   * @return current score of suggestion in context of query
+   */
+  public synchronized double score(T suggestion, SuggestionQuery query) {
+    final long now = System.currentTimeMillis();
+    final String key = keyExtractor.apply(suggestion);
+    return score(key, now) + CONTEXT_WEIGHT * score(contextExtractor.apply(query) + CONTEXT_SEPARATOR + key, now);
+  }
+
+  /**
+   * Write ranking to file on current thread. Called by executor after selections are recorded.
+   */
+  public void flush() {
+    if (!file.isPresent()) {
+      return;
+    }
+    flushScheduled.set(false);
+    final Map<String, Entry> snapshot;
+    synchronized (this) {
+      if (!loaded) {
+        //written after file is read
+        return;
+      }
+      snapshot = new HashMap<>(entries);
+    }
+    final Path path = file.get();
+    try {
+      final Path parent = path.toAbsolutePath().getParent();
+      if (parent != null) {
+        Files.createDirectories(parent);
+      }
+      final Path temp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+        out.writeInt(FILE_MAGIC);
+        out.writeInt(snapshot.size());
+        for (Map.Entry<String, Entry> entry : snapshot.entrySet()) {
+          final byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+          out.writeInt(key.length);
+          out.write(key);
+          out.writeDouble(entry.getValue().score);
+          out.writeLong(entry.getValue().time);
+        }
+      }
+      try {
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * @return true if ranking is not persisted or file was read
+   */
+  public synchronized boolean isLoaded() {
+    return loaded;
+  }
+
+  /**
+   * Reads file on thread of executor and merges it with selections recorded in meantime
+   */
+  private void load() {
+    final Path path = file.get();
+    final Map<String, Entry> stored = new HashMap<>();
+    if (Files.exists(path)) {
+      try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+        if (in.readInt() != FILE_MAGIC) {
+          throw new IOException("File is not a frecency ranking: " + path);
+        }
+        final int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+          final byte[] key = new byte[in.readInt()];
+          in.readFully(key);
+          stored.put(new String(key, StandardCharsets.UTF_8), new Entry(in.readDouble(), in.readLong()));
+        }
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+    }
+    final long now = System.currentTimeMillis();
+    final boolean recorded;
+    synchronized (this) {
+      recorded = !entries.isEmpty();
+      stored.forEach((key, entry) -> entries.merge(key, entry,
+        (current, old) -> new Entry(current.scoreAt(now, decayPerMilli) + old.scoreAt(now, decayPerMilli), now)));
+      loaded = true;
+      if (entries.size() > maxEntries) {
+        prune(now);
+      }
+    }
+    if (recorded) {
+      scheduleFlush();
+    }
+  }
+
+  private double score(String key, long now) {
+    final Entry entry = entries.get(key);
+    return entry != null ? entry.scoreAt(now, decayPerMilli) : 0;
+  }
+
+  private void increment(String key, long now) {
+    final Entry entry = entries.get(key);
+    entries.put(key, new Entry(entry != null ? entry.scoreAt(now, decayPerMilli) + 1 : 1, now));
+  }
+
+  /**
+   * Removes 10% of entries with lowest score
+   */
+  private void prune(long now) {
+    final List<Map.Entry<String, Entry>> sorted = new ArrayList<>(entries.entrySet());
+    sorted.sort(Comparator.comparingDouble(e -> e.getValue().scoreAt(now, decayPerMilli)));
+    final int toRemove = Math.max(entries.size() - maxEntries, maxEntries / 10);
+    final List<String> removed = new ArrayList<>(toRemove);
+    for (int i = 0; i < toRemove && i < sorted.size(); i++) {
+      removed.add(sorted.get(i).getKey());
+    }
+    entries.keySet().removeAll(removed);
+  }
+
+  private static class Entry {
+    private final double score;
+    private final long time;
+
+    Entry(double score, long time) {
+      this.score = score;
+      this.time = time;
+    }
+
+    double scoreAt(long now, double decayPerMilli) {
+      return score * Math.exp(-decayPerMilli * Math.max(0, now - time));
+    }
+  }
+}
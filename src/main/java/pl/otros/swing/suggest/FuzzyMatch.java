@@ -0,0 +1,80 @@
+/*
+ * Copyright 2014 otros.systems@gmail.com
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package pl.otros.swing.suggest;
+
+import java.util.Arrays;
+
+/**
+ * Candidate matched by {@link FuzzyMatcher} with score and ranges of matched characters.
+ *
+ * @param <T> type of matched value
+ */
+public class FuzzyMatch<T> {
+
+  private final T value;
+  private final int score;
+  private final int[] matchRanges;
+
+  public FuzzyMatch(T value, int score, int[] matchRanges) {
+    this.value = value;
+    this.score = score;
+    this.matchRanges = matchRanges;
+  }
+
+  public T getValue() {
+    return value;
+  }
+
+  public int getScore() {
+    return score;
+  }
+
+  /**
+   * @return pairs of start (inclusive) and end (exclusive) indexes of matched characters
+   */
+  public int[] getMatchRanges() {
+    return matchRanges;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+
+    FuzzyMatch<?> that = (FuzzyMatch<?>) o;
+    return score == that.score
+      && !(value != null ? !value.equals(that.value) : that.value != null)
+      && Arrays.equals(matchRanges, that.matchRanges);
+  }
+
+  @Override
+  public int hashCode() {
+    int result = value != null ? value.hashCode() : 0;
+    result = 31 * result + score;
+    result = 31 * result + Arrays.hashCode(matchRanges);
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return "FuzzyMatch{" +
+      "value=" + value +
+      ", score=" + score +
+      ", matchRanges=" + Arrays.toString(matchRanges) +
+      '}';
+  }
+}
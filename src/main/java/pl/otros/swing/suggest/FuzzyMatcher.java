@@ -0,0 +1,327 @@
+/*
+ * Copyright 2014 otros.systems@gmail.com
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package pl.otros.swing.suggest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Subsequence ("camel hump") matcher scoring candidates against pattern. Characters are compared ignoring case,
+ * matching case is only rewarded. Matches at word starts (after separator, lower to upper case change) and
+ * consecutive matches get bonus, gaps between matched characters are penalized.
+ * <p>
+ * Matcher reuses internal arrays, so scoring candidate do not allocate memory. Instance of matcher is not thread safe.
+ * </p>
+ */
+public class FuzzyMatcher {
+
+  public static final int NO_MATCH = Integer.MIN_VALUE;
+
+  private static final int SCORE_MATCH = 16;
+  private static final int BONUS_CONSECUTIVE = 12;
+  private static final int BONUS_WORD_START = 10;
+  private static final int BONUS_FIRST_CHAR = 8;
+  private static final int BONUS_CASE = 1;
+  private static final int PENALTY_GAP = 1;
+  private static final int MAX_GAP_PENALTY = 8;
+  private static final int INTERRUPT_CHECK_INTERVAL = 4096;
+
+  private final char[] pattern;
+  private final char[] foldedPattern;
+  /**
+   * Positions of best match found by last call of {@link #match(CharSequence)}
+   */
+  private final int[] positions;
+  private final int[] scratchPositions;
+  private final int[] latestPositions;
+
+  public FuzzyMatcher(CharSequence pattern) {
+    final int length = pattern.length();
+    this.pattern = new char[length];
+    this.foldedPattern = new char[length];
+    for (int i = 0; i < length; i++) {
+      this.pattern[i] = pattern.charAt(i);
+      this.foldedPattern[i] = fold(this.pattern[i]);
+    }
+    positions = new int[length];
+    scratchPositions = new int[length];
+    latestPositions = new int[length];
+  }
+
+  /**
+   * Score text against pattern.
+   * @param text candidate
+   * @return score of best match found, or {@link #NO_MATCH} if text do not contain pattern as subsequence
+   */
+  public int match(CharSequence text) {
+    final int m = foldedPattern.length;
+    if (m == 0) {
+      return 0;
+    }
+    final int n = text.length();
+    //latest positions at which pattern characters can be matched, so rest of pattern still fits
+    int pi = m - 1;
+    for (int i = n - 1; i >= 0 && pi >= 0; i--) {
+      if (fold(text.charAt(i)) == foldedPattern[pi]) {
+        latestPositions[pi--] = i;
+      }
+    }
+    if (pi >= 0) {
+      return NO_MATCH;
+    }
+
+    //first match: earliest end of match, tightened by backward scan
+    int end = -1;
+    pi = 0;
+    for (int i = 0; i < n; i++) {
+      if (fold(text.charAt(i)) == foldedPattern[pi] && ++pi == m) {
+        end = i;
+        break;
+      }
+    }
+    pi = m - 1;
+    for (int i = end; i >= 0 && pi >= 0; i--) {
+      if (fold(text.charAt(i)) == foldedPattern[pi]) {
+        positions[pi--] = i;
+      }
+    }
+    int bestScore = score(text, positions);
+
+    //second match: prefer consecutive characters and word starts
+    int from = 0;
+    for (pi = 0; pi < m; pi++) {
+      int any = -1;
+      int chosen = -1;
+      for (int i = from; i <= latestPositions[pi]; i++) {
+        if (fold(text.charAt(i)) != foldedPattern[pi]) {
+          continue;
+        }
+        if (any < 0) {
+          any = i;
+          if (pi > 0 && i == scratchPositions[pi - 1] + 1) {
+            chosen = i;
+            break;
+          }
+        }
+        if (isWordStart(text, i)) {
+          chosen = i;
+          break;
+        }
+      }
+      scratchPositions[pi] = chosen >= 0 ? chosen : any;
+      from = scratchPositions[pi] + 1;
+    }
+    final int score = score(text, scratchPositions);
+    if (score > bestScore) {
+      bestScore = score;
+      System.arraycopy(scratchPositions, 0, positions, 0, m);
+    }
+    return bestScore;
+  }
+
+  /**
+   * Matched ranges of last successful {@link #match(CharSequence)} call.
+   * @return pairs of start (inclusive) and end (exclusive) indexes of matched characters
+   */
+  public int[] getMatchRanges() {
+    final int m = positions.length;
+    int ranges = 0;
+    for (int i = 0; i < m; i++) {
+      if (i == 0 || positions[i] != positions[i - 1] + 1) {
+        ranges++;
+      }
+    }
+    final int[] result = new int[ranges * 2];
+    int r = -1;
+    for (int i = 0; i < m; i++) {
+      if (i == 0 || positions[i] != positions[i - 1] + 1) {
+        result[++r] = positions[i];
+        r++;
+      }
+      result[r] = positions[i] + 1;
+    }
+    return result;
+  }
+
+  /**
+   * Find best matching candidates. Only best <code>limit</code> candidates are kept in bounded heap during matching.
+   * Matching stops when current thread is interrupted.
+   * @param candidates candidates to match
+   * @param toText text of candidate to match
+   * @param limit maximum number of returned matches
+   * @param <T> type of candidate
+   * @return matches ordered by score, equally scored matches are in order of candidates
+   */
+  public <T> List<FuzzyMatch<T>> top(Iterable<T> candidates, Function<? super T, ? extends CharSequence> toText, int limit) {
+    if (limit <= 0) {
+      return new ArrayList<>();
+    }
+    final TopK<T> topK = new TopK<>(limit);
+    int index = 0;
+    for (T candidate : candidates) {
+      if (++index % INTERRUPT_CHECK_INTERVAL == 0 && Thread.currentThread().isInterrupted()) {
+        break;
+      }
+      final int score = match(toText.apply(candidate));
+      if (score != NO_MATCH) {
+        topK.offer(candidate, score, index);
+      }
+    }
+    //heap order is not stable, ties are ordered by candidate index, so pages of results are consistent
+    final Integer[] positions = new Integer[topK.size];
+    for (int i = 0; i < positions.length; i++) {
+      positions[i] = i;
+    }
+    Arrays.sort(positions, topK::compare);
+    final List<FuzzyMatch<T>> result = new ArrayList<>(topK.size);
+    for (int position : positions) {
+      final T value = topK.value(position);
+      final int score = match(toText.apply(value));
+      result.add(new FuzzyMatch<>(value, score, getMatchRanges()));
+    }
+    return result;
+  }
+
+  private int score(CharSequence text, int[] matched) {
+    int score = 0;
+    for (int k = 0; k < matched.length; k++) {
+      final int index = matched[k];
+      final char c = text.charAt(index);
+      score += SCORE_MATCH;
+      if (k > 0) {
+        final int gap = index - matched[k - 1] - 1;
+        score += gap == 0 ? BONUS_CONSECUTIVE : -Math.min(gap, MAX_GAP_PENALTY) * PENALTY_GAP;
+      } else if (index == 0) {
+        score += BONUS_FIRST_CHAR;
+      } else {
+        score -= Math.min(index, MAX_GAP_PENALTY) * PENALTY_GAP;
+      }
+      if (isWordStart(text, index)) {
+        score += BONUS_WORD_START;
+      }
+      if (c == pattern[k]) {
+        score += BONUS_CASE;
+      }
+    }
+    return score;
+  }
+
+  private static boolean isWordStart(CharSequence text, int index) {
+    if (index == 0) {
+      return true;
+    }
+    final char c = text.charAt(index);
+    final char previous = text.charAt(index - 1);
+    if (!Character.isLetterOrDigit(previous)) {
+      return Character.isLetterOrDigit(c);
+    }
+    return Character.isUpperCase(c) && Character.isLowerCase(previous)
+      || Character.isDigit(c) && !Character.isDigit(previous);
+  }
+
+  private static char fold(char c) {
+    return Character.toLowerCase(Character.toUpperCase(c));
+  }
+
+  /**
+   * Bounded min-heap keeping best scored candidates. Ties are resolved in favour of earlier candidates.
+   */
+  private static class TopK<T> {
+    private final Object[] values;
+    private final int[] scores;
+    private final int[] order;
+    private int size = 0;
+
+    TopK(int capacity) {
+      values = new Object[capacity];
+      scores = new int[capacity];
+      order = new int[capacity];
+    }
+
+    void offer(T value, int score, int index) {
+      if (size < values.length) {
+        set(size, value, score, index);
+        siftUp(size++);
+      } else if (score > scores[0]) {
+        set(0, value, score, index);
+        siftDown(0);
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    T value(int i) {
+      return (T) values[i];
+    }
+
+    private void set(int i, Object value, int score, int index) {
+      values[i] = value;
+      scores[i] = score;
+      order[i] = index;
+    }
+
+    /**
+     * Compares elements at heap positions, better element is lower
+     */
+    int compare(int i, int j) {
+      return worse(j, i) ? -1 : worse(i, j) ? 1 : 0;
+    }
+
+    private boolean worse(int i, int j) {
+      return scores[i] < scores[j] || scores[i] == scores[j] && order[i] > order[j];
+    }
+
+    private void siftUp(int i) {
+      while (i > 0) {
+        final int parent = (i - 1) / 2;
+        if (!worse(i, parent)) {
+          return;
+        }
+        swap(i, parent);
+        i = parent;
+      }
+    }
+
+    private void siftDown(int i) {
+      while (true) {
+        final int left = 2 * i + 1;
+        final int right = left + 1;
+        int worst = i;
+        if (left < size && worse(left, worst)) {
+          worst = left;
+        }
+        if (right < size && worse(right, worst)) {
+          worst = right;
+        }
+        if (worst == i) {
+          return;
+        }
+        swap(i, worst);
+        i = worst;
+      }
+    }
+
+    private void swap(int i, int j) {
+      final Object value = values[i];
+      final int score = scores[i];
+      final int index = order[i];
+      set(i, values[j], scores[j], order[j]);
+      set(j, value, score, index);
+    }
+  }
+}
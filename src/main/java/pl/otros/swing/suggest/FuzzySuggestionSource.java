@@ -0,0 +1,59 @@
+/*
+ * Copyright 2014 otros.systems@gmail.com
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package pl.otros.swing.suggest;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Suggestion source fuzzy matching token before caret against candidates. Returned {@link FuzzyMatch} contains
+ * ranges of matched characters, so renderer can highlight them.
+ *
+ * @param <T> type of candidate
+ */
+public class FuzzySuggestionSource<T> implements SuggestionSource<FuzzyMatch<T>> {
+
+  private final Collection<T> candidates;
+  private final Function<? super T, ? extends CharSequence> toText;
+  private final int maxResults;
+
+  /**
+   * @param candidates candidates to match
+   * @param toText text of candidate to match, for example {@link BasicSuggestion#getToDisplay()}
+   * @param maxResults maximum number of returned suggestions
+   */
+  public FuzzySuggestionSource(Collection<T> candidates, Function<? super T, ? extends CharSequence> toText, int maxResults) {
+    this.candidates = candidates;
+    this.toText = toText;
+    this.maxResults = maxResults;
+  }
+
+  @Override
+  public List<FuzzyMatch<T>> getSuggestions(SuggestionQuery query) {
+    final CharSequence token = query.getTokenBeforeCaret();
+    if (token.length() == 0) {
+      return new ArrayList<>();
+    }
+    final int limit = query.getPageLimit(maxResults);
+    if (limit == 0) {
+      return new ArrayList<>();
+    }
+    return query.selectPage(new FuzzyMatcher(token).top(candidates, toText, query.getOffset() + limit));
+  }
+}
@@ -0,0 +1,489 @@
+/*
+ * Copyright 2014 otros.systems@gmail.com
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package pl.otros.swing.suggest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Suggestion source querying remote HTTP/JSON endpoint. Requests are sent by pool of threads, connections are kept
+ * alive by {@link HttpURLConnection}. Use it with decorator executor, so EDT is not blocked.
+ * <ul>
+ * <li>Equal requests in flight are coalesced, callers wait for the same response.</li>
+ * <li>When query is superseded (thread waiting for response is interrupted by decorator), request is aborted by
+ * closing its connection, unless other callers wait for it.</li>
+ * <li>Optionally request slower than percentile of observed response times is hedged: the same request is sent
+ * again and first response is used.</li>
+ * <li>Optionally local fallback source is queried when response is not received before timeout or request fails.</li>
+ * </ul>
+ * Request is POST with JSON object: text, caret, selectionStart, selectionEnd, tokenStart, tokenEnd, offset and limit
+ * (limit is omitted if all suggestions are requested). Response is JSON array of suggestions or object with array in
+ * "suggestions" field. Every suggestion is converted by result mapper, see {@link #toBasicSuggestion(Object)} and
+ * {@link SuggestionHttpServer}.
+ *
+ * @param <T> Suggestion type
+ */
+public class HttpSuggestionSource<T> implements SuggestionSource<T>, AutoCloseable {
+
+  public static final int DEFAULT_MAX_CONNECTIONS = 4;
+  private static final int CONNECT_TIMEOUT_MILLIS = 5_000;
+  private static final int READ_TIMEOUT_MILLIS = 30_000;
+  /**
+   * Number of responses measured before requests are hedged
+   */
+  private static final int MIN_HEDGE_SAMPLES = 20;
+
+  private final URL endpoint;
+  private final Function<Object, T> resultMapper;
+  private final ThreadPoolExecutor pool;
+  private final Map<String, Call> inFlight = new HashMap<>();
+  private final LatencyRecorder latencies = new LatencyRecorder();
+  private final AtomicLong requestCount = new AtomicLong();
+  private final AtomicLong responseCount = new AtomicLong();
+  private final AtomicLong coalescedCount = new AtomicLong();
+  private final AtomicLong hedgedCount = new AtomicLong();
+  private final AtomicLong cancelledCount = new AtomicLong();
+  private final AtomicLong fallbackCount = new AtomicLong();
+  private volatile long timeoutNanos = 0;
+  private volatile double hedgePercentile = 0;
+  private volatile Optional<SuggestionSource<T>> fallback = Optional.empty();
+
+  public HttpSuggestionSource(URL endpoint, Function<Object, T> resultMapper) {
+    this(endpoint, resultMapper, DEFAULT_MAX_CONNECTIONS);
+  }
+
+  /**
+   * @param endpoint URL of suggestion endpoint
+   * @param resultMapper converts parsed JSON of suggestion (Map, List, String, Number, Boolean) to suggestion
+   * @param maxConnections maximum number of concurrent requests
+   */
+  public HttpSuggestionSource(URL endpoint, Function<Object, T> resultMapper, int maxConnections) {
+    this.endpoint = endpoint;
+    this.resultMapper = resultMapper;
+    pool = new ThreadPoolExecutor(maxConnections, maxConnections, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+      final Thread thread = new Thread(r, "Suggestion request");
+      thread.setDaemon(true);
+      return thread;
+    });
+    pool.allowCoreThreadTimeOut(true);
+  }
+
+  /**
+   * @param timeout time to wait for response, 0 to wait until request fails
+   * @param unit unit of timeout
+   */
+  public void setTimeout(long timeout, TimeUnit unit) {
+    this.timeoutNanos = unit.toNanos(timeout);
+  }
+
+  /**
+   * @param fallback source queried when response is not received before timeout or request fails, null to return
+   *                 no suggestions
+   */
+  public void setFallback(SuggestionSource<T> fallback) {
+    this.fallback = Optional.ofNullable(fallback);
+  }
+
+  /**
+   * @param percentile percentile of response times (for example 95) after which request is sent again, 0 to disable
+   *                   hedging
+   */
+  public void setHedging(double percentile) {
+    this.hedgePercentile = percentile;
+  }
+
+  @Override
+  public List<T> getSuggestions(SuggestionQuery query) {
+    final long start = System.nanoTime();
+    final Call call = join(requestBody(query));
+    try {
+      final long hedgeDelay = hedgeDelayNanos();
+      if (hedgeDelay >= 0) {
+        try {
+          return call.result.get(remaining(call.startNanos + hedgeDelay), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+          call.hedge();
+        }
+      }
+      final long timeout = timeoutNanos;
+      return timeout > 0 ? call.result.get(remaining(start + timeout), TimeUnit.NANOSECONDS) : call.result.get();
+    } catch (InterruptedException e) {
+      //query was replaced by newer one
+      cancelledCount.incrementAndGet();
+      Thread.currentThread().interrupt();
+      return Collections.emptyList();
+    } catch (TimeoutException e) {
+      return fallback(query);
+    } catch (ExecutionException e) {
+      if (!fallback.isPresent()) {
+        e.getCause().printStackTrace();
+      }
+      return fallback(query);
+    } finally {
+      release(call);
+    }
+  }
+
+  private static long remaining(long deadline) {
+    return Math.max(0, deadline - System.nanoTime());
+  }
+
+  /**
+   * @return delay after which request is hedged, -1 if hedging is disabled or not enough responses were measured
+   */
+  private long hedgeDelayNanos() {
+    final double percentile = hedgePercentile;
+    if (percentile <= 0 || responseCount.get() < MIN_HEDGE_SAMPLES) {
+      return -1;
+    }
+    return latencies.getTotalPercentile(percentile);
+  }
+
+  private List<T> fallback(SuggestionQuery query) {
+    fallbackCount.incrementAndGet();
+    final Optional<SuggestionSource<T>> source = fallback;
+    return source.isPresent() ? source.get().getSuggestions(query) : Collections.emptyList();
+  }
+
+  static Map<String, Object> toJson(SuggestionQuery query) {
+    final Map<String, Object> request = new LinkedHashMap<>();
+    request.put("text", query.getText().toString());
+    request.put("caret", query.getCaretLocation());
+    request.put("selectionStart", query.getSelectionStart());
+    request.put("selectionEnd", query.getSelectionEnd());
+    request.put("tokenStart", query.getTokenStart());
+    request.put("tokenEnd", query.getTokenEnd());
+    request.put("offset", query.getOffset());
+    if (query.getLimit() != SuggestionQuery.NO_LIMIT) {
+      request.put("limit", query.getLimit());
+    }
+    return request;
+  }
+
+  private static String requestBody(SuggestionQuery query) {
+    return Json.write(toJson(query));
+  }
+
+  /**
+   * @return call in flight with the same request or new call
+   */
+  private Call join(String body) {
+    Call call;
+    synchronized (inFlight) {
+      call = inFlight.get(body);
+      if (call != null && !call.result.isDone()) {
+        call.waiters++;
+        coalescedCount.incrementAndGet();
+        return call;
+      }
+      call = new Call(body);
+      inFlight.put(body, call);
+    }
+    call.start();
+    return call;
+  }
+
+  /**
+   * Caller does not wait for response any more, request is aborted if nobody waits for it
+   */
+  private void release(Call call) {
+    final boolean abandoned;
+    synchronized (inFlight) {
+      abandoned = --call.waiters == 0;
+      if (abandoned) {
+        inFlight.remove(call.body, call);
+      }
+    }
+    if (abandoned && !call.result.isDone()) {
+      call.abort();
+    }
+  }
+
+  private List<T> request(Attempt attempt) throws IOException {
+    final HttpURLConnection connection = (HttpURLConnection) endpoint.openConnection();
+    attempt.connection = connection;
+    if (attempt.aborted) {
+      connection.disconnect();
+      throw new InterruptedIOException("Request aborted");
+    }
+    final byte[] body = attempt.call.body.getBytes(StandardCharsets.UTF_8);
+    final long timeout = TimeUnit.NANOSECONDS.toMillis(timeoutNanos);
+    connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+    connection.setReadTimeout(timeout > 0 ? (int) Math.min(timeout, Integer.MAX_VALUE) : READ_TIMEOUT_MILLIS);
+    connection.setRequestMethod("POST");
+    connection.setDoOutput(true);
+    connection.setFixedLengthStreamingMode(body.length);
+    connection.setRequestProperty("Content-Type", "application/json; charset=utf-8");
+    connection.setRequestProperty("Accept", "application/json");
+    try (OutputStream out = connection.getOutputStream()) {
+      out.write(body);
+    }
+    final int code = connection.getResponseCode();
+    if (code != HttpURLConnection.HTTP_OK) {
+      //read error response, so connection can be reused
+      final InputStream error = connection.getErrorStream();
+      if (error != null) {
+        try (InputStream in = error) {
+          readFully(in);
+        }
+      }
+      throw new IOException("HTTP " + code + " " + connection.getResponseMessage() + " from " + endpoint);
+    }
+    try (InputStream in = connection.getInputStream()) {
+      return parseSuggestions(readFully(in));
+    }
+  }
+
+  private static String readFully(InputStream in) throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final byte[] buffer = new byte[4096];
+    int read;
+    while ((read = in.read(buffer)) >= 0) {
+      out.write(buffer, 0, read);
+    }
+    return new String(out.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  private List<T> parseSuggestions(String response) throws IOException {
+    Object json = Json.parse(response);
+    if (json instanceof Map) {
+      json = ((Map<?, ?>) json).get("suggestions");
+    }
+    if (!(json instanceof List)) {
+      throw new IOException("Expected array of suggestions in response of " + endpoint);
+    }
+    final List<?> items = (List<?>) json;
+    final List<T> suggestions = new ArrayList<>(items.size());
+    for (Object item : items) {
+      final T suggestion = resultMapper.apply(item);
+      if (suggestion != null) {
+        suggestions.add(suggestion);
+      }
+    }
+    return suggestions;
+  }
+
+  /**
+   * Converts JSON string or object with "display" and optional "insert" fields to suggestion
+   */
+  public static BasicSuggestion toBasicSuggestion(Object json) {
+    if (json instanceof Map) {
+      final Map<?, ?> map = (Map<?, ?>) json;
+      final Object display = map.get("display");
+      final Object insert = map.get("insert");
+      if (display != null) {
+        return new BasicSuggestion(display.toString(), insert != null ? insert.toString() : display.toString());
+      }
+    } else if (json instanceof String) {
+      return new BasicSuggestion((String) json, (String) json);
+    }
+    throw new IllegalArgumentException("Unsupported suggestion: " + json);
+  }
+
+  /**
+   * @return response times of requests, hedged requests are measured separately
+   */
+  public LatencyRecorder getLatencies() {
+    return latencies;
+  }
+
+  /**
+   * @return number of HTTP requests sent, including hedged requests
+   */
+  public long getRequestCount() {
+    return requestCount.get();
+  }
+
+  public long getCoalescedCount() {
+    return coalescedCount.get();
+  }
+
+  public long getHedgedCount() {
+    return hedgedCount.get();
+  }
+
+  /**
+   * @return number of queries superseded while waiting for response
+   */
+  public long getCancelledCount() {
+    return cancelledCount.get();
+  }
+
+  /**
+   * @return number of queries answered by fallback (or without suggestions) after timeout or failure
+   */
+  public long getFallbackCount() {
+    return fallbackCount.get();
+  }
+
+  /**
+   * Aborts requests in flight and stops threads sending requests
+   */
+  @Override
+  public void close() {
+    final List<Call> calls;
+    synchronized (inFlight) {
+      calls = new ArrayList<>(inFlight.values());
+      inFlight.clear();
+    }
+    calls.forEach(Call::abort);
+    pool.shutdownNow();
+  }
+
+  @Override
+  public String toString() {
+    return "HttpSuggestionSource{" +
+      "endpoint=" + endpoint +
+      ", requests=" + requestCount +
+      ", coalesced=" + coalescedCount +
+      ", hedged=" + hedgedCount +
+      ", cancelled=" + cancelledCount +
+      ", fallbacks=" + fallbackCount +
+      ", p50=" + TimeUnit.NANOSECONDS.toMillis(latencies.getTotalPercentile(50)) +
+      "ms, p99=" + TimeUnit.NANOSECONDS.toMillis(latencies.getTotalPercentile(99)) +
+      "ms}";
+  }
+
+  /**
+   * Request with callers waiting for response, sent once or twice if hedged
+   */
+  private class Call {
+    private final String body;
+    private final CompletableFuture<List<T>> result = new CompletableFuture<>();
+    private final List<Attempt> attempts = new ArrayList<>(2);
+    private final long startNanos = System.nanoTime();
+    /**
+     * Number of callers waiting for response, guarded by inFlight
+     */
+    private int waiters = 1;
+    private boolean hedged = false;
+    private int failed = 0;
+
+    Call(String body) {
+      this.body = body;
+      result.whenComplete((suggestions, e) -> {
+        synchronized (inFlight) {
+          inFlight.remove(body, this);
+        }
+      });
+    }
+
+    synchronized void start() {
+      final Attempt attempt = new Attempt(this);
+      attempts.add(attempt);
+      requestCount.incrementAndGet();
+      attempt.future = pool.submit(attempt);
+    }
+
+    synchronized void hedge() {
+      if (!hedged && !result.isDone()) {
+        hedged = true;
+        hedgedCount.incrementAndGet();
+        start();
+      }
+    }
+
+    void succeeded(Attempt attempt, List<T> suggestions, long durationNanos) {
+      latencies.recordTotal(durationNanos);
+      responseCount.incrementAndGet();
+      if (result.complete(suggestions)) {
+        abortOthers(attempt);
+      }
+    }
+
+    synchronized void failed(Attempt attempt, Exception e) {
+      if (attempt.aborted) {
+        return;
+      }
+      failed++;
+      if (failed == attempts.size()) {
+        result.completeExceptionally(e);
+      }
+    }
+
+    private synchronized void abortOthers(Attempt completed) {
+      for (Attempt attempt : attempts) {
+        if (attempt != completed) {
+          attempt.abort();
+        }
+      }
+    }
+
+    synchronized void abort() {
+      attempts.forEach(Attempt::abort);
+      result.cancel(false);
+    }
+  }
+
+  private class Attempt implements Runnable {
+    private final Call call;
+    private volatile HttpURLConnection connection;
+    private volatile boolean aborted = false;
+    private Future<?> future;
+
+    Attempt(Call call) {
+      this.call = call;
+    }
+
+    @Override
+    public void run() {
+      if (aborted) {
+        return;
+      }
+      final long start = System.nanoTime();
+      try {
+        call.succeeded(this, request(this), System.nanoTime() - start);
+      } catch (IOException | RuntimeException e) {
+        call.failed(this, e);
+      }
+    }
+
+    void abort() {
+      aborted = true;
+      final HttpURLConnection c = connection;
+      if (c != null) {
+        c.disconnect();
+      }
+      if (future != null) {
+        future.cancel(true);
+      }
+    }
+  }
+}
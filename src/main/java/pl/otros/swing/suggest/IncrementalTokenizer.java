@@ -0,0 +1,208 @@
+/*
+ * Copyright 2014 otros.systems@gmail.com
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package pl.otros.swing.suggest;
+
+import javax.swing.event.DocumentEvent;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Segment;
+import java.util.function.IntPredicate;
+
+/**
+ * Keeps spans of tokens in document up to date using offsets of document events. Token is maximal run of token
+ * characters. After edit only tokens touching edited region are lexed again.
+ * <p>
+ * Tokens are kept in gap buffer. Tokens before gap are stored as offsets from document start, tokens after gap
+ * as offsets from document end, so edit at gap do not shift any token. Gap is moved to edited token, which is cheap
+ * when user edits text in one place. Update costs O(log tokens + edit + gap move) instead of O(document).
+ * </p>
+ * Tokenizer is not thread safe, it should be updated and read on EDT.
+ */
+public class IncrementalTokenizer {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private final IntPredicate tokenCharacter;
+  private final Segment segment = new Segment();
+  private int[] starts = new int[INITIAL_CAPACITY];
+  private int[] ends = new int[INITIAL_CAPACITY];
+  private int gapStart = 0;
+  private int gapEnd = INITIAL_CAPACITY;
+  private int documentLength = 0;
+
+  /**
+   * Tokenizer treating all non whitespace characters as token characters
+   */
+  public IncrementalTokenizer() {
+    this(c -> !Character.isWhitespace(c));
+  }
+
+  /**
+   * @param tokenCharacter checks if character is part of token
+   */
+  public IncrementalTokenizer(IntPredicate tokenCharacter) {
+    this.tokenCharacter = tokenCharacter;
+    segment.setPartialReturn(true);
+  }
+
+  /**
+   * Tokenize whole document
+   */
+  public void reset(Document document) {
+    gapStart = 0;
+    gapEnd = starts.length;
+    documentLength = document.getLength();
+    lex(document, 0, documentLength);
+  }
+
+  public void insertUpdate(DocumentEvent e) {
+    update(e.getDocument(), e.getOffset(), 0, e.getLength());
+  }
+
+  public void removeUpdate(DocumentEvent e) {
+    update(e.getDocument(), e.getOffset(), e.getLength(), 0);
+  }
+
+  /**
+   * @return number of tokens in document
+   */
+  public int getTokenCount() {
+    return gapStart + starts.length - gapEnd;
+  }
+
+  public int getTokenStart(int index) {
+    return index < gapStart ? starts[index] : documentLength - starts[index + gapEnd - gapStart];
+  }
+
+  public int getTokenEnd(int index) {
+    return index < gapStart ? ends[index] : documentLength - ends[index + gapEnd - gapStart];
+  }
+
+  /**
+   * Find token containing offset. Offset at the end of token is treated as part of token.
+   * @return index of token or -1 if offset is not inside token
+   */
+  public int findToken(int offset) {
+    final int index = firstTokenEndingAtOrAfter(offset);
+    if (index < getTokenCount() && getTokenStart(index) <= offset) {
+      return index;
+    }
+    return -1;
+  }
+
+  private void update(Document document, int offset, int removed, int inserted) {
+    //tokens touching edited region, also tokens adjacent to region can be joined or split
+    final int first = firstTokenEndingAtOrAfter(offset);
+    int last = first;
+    final int count = getTokenCount();
+    while (last < count && getTokenStart(last) <= offset + removed) {
+      last++;
+    }
+    int from = offset;
+    int to = offset + removed;
+    if (first < last) {
+      from = Math.min(from, getTokenStart(first));
+      to = Math.max(to, getTokenEnd(last - 1));
+    }
+    moveGap(first);
+    gapEnd += last - first;
+    documentLength += inserted - removed;
+    lex(document, from, to + inserted - removed);
+  }
+
+  private int firstTokenEndingAtOrAfter(int offset) {
+    int low = 0;
+    int high = getTokenCount();
+    while (low < high) {
+      final int middle = (low + high) >>> 1;
+      if (getTokenEnd(middle) < offset) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Lex region of document and insert found tokens at gap.
+   */
+  private void lex(Document document, int from, int to) {
+    int tokenStart = -1;
+    int position = from;
+    try {
+      while (position < to) {
+        document.getText(position, to - position, segment);
+        for (int i = 0; i < segment.count; i++, position++) {
+          final boolean tokenChar = tokenCharacter.test(segment.array[segment.offset + i]);
+          if (tokenChar && tokenStart < 0) {
+            tokenStart = position;
+          } else if (!tokenChar && tokenStart >= 0) {
+            insertAtGap(tokenStart, position);
+            tokenStart = -1;
+          }
+        }
+      }
+    } catch (BadLocationException e) {
+      throw new IllegalStateException("Tokenizer is not synchronized with document: " + e.getMessage(), e);
+    }
+    if (tokenStart >= 0) {
+      insertAtGap(tokenStart, position);
+    }
+  }
+
+  private void insertAtGap(int start, int end) {
+    if (gapStart == gapEnd) {
+      grow();
+    }
+    starts[gapStart] = start;
+    ends[gapStart] = end;
+    gapStart++;
+  }
+
+  private void grow() {
+    final int capacity = starts.length * 2;
+    final int tail = starts.length - gapEnd;
+    final int[] newStarts = new int[capacity];
+    final int[] newEnds = new int[capacity];
+    System.arraycopy(starts, 0, newStarts, 0, gapStart);
+    System.arraycopy(ends, 0, newEnds, 0, gapStart);
+    System.arraycopy(starts, gapEnd, newStarts, capacity - tail, tail);
+    System.arraycopy(ends, gapEnd, newEnds, capacity - tail, tail);
+    starts = newStarts;
+    ends = newEnds;
+    gapEnd = capacity - tail;
+  }
+
+  /**
+   * Move gap so it starts at token index, converting moved tokens between absolute and from-end offsets.
+   */
+  private void moveGap(int index) {
+    while (gapStart > index) {
+      gapStart--;
+      gapEnd--;
+      starts[gapEnd] = documentLength - starts[gapStart];
+      ends[gapEnd] = documentLength - ends[gapStart];
+    }
+    while (gapStart < index) {
+      starts[gapStart] = documentLength - starts[gapEnd];
+      ends[gapStart] = documentLength - ends[gapEnd];
+      gapStart++;
+      gapEnd++;
+    }
+  }
+}
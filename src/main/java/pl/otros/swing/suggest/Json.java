@@ -0,0 +1,276 @@
+/*
+ * Copyright 2014 otros.systems@gmail.com
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package pl.otros.swing.suggest;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal JSON reader and writer used by {@link HttpSuggestionSource} and {@link SuggestionHttpServer}. Objects are
+ * read as {@link Map}, arrays as {@link List}, numbers as {@link Long} or {@link Double}.
+ */
+final class Json {
+
+  private final String json;
+  private int position = 0;
+
+  private Json(String json) {
+    this.json = json;
+  }
+
+  static Object parse(String json) throws IOException {
+    final Json parser = new Json(json);
+    final Object value = parser.readValue();
+    parser.skipWhitespace();
+    if (parser.position < json.length()) {
+      throw parser.error("Unexpected content");
+    }
+    return value;
+  }
+
+  static String write(Object value) {
+    final StringBuilder sb = new StringBuilder();
+    write(sb, value);
+    return sb.toString();
+  }
+
+  private static void write(StringBuilder sb, Object value) {
+    if (value == null || value instanceof Boolean || value instanceof Number) {
+      sb.append(value);
+    } else if (value instanceof Map) {
+      sb.append('{');
+      boolean first = true;
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+        if (!first) {
+          sb.append(',');
+        }
+        first = false;
+        writeString(sb, String.valueOf(entry.getKey()));
+        sb.append(':');
+        write(sb, entry.getValue());
+      }
+      sb.append('}');
+    } else if (value instanceof Iterable) {
+      sb.append('[');
+      boolean first = true;
+      for (Object element : (Iterable<?>) value) {
+        if (!first) {
+          sb.append(',');
+        }
+        first = false;
+        write(sb, element);
+      }
+      sb.append(']');
+    } else {
+      writeString(sb, value.toString());
+    }
+  }
+
+  private static void writeString(StringBuilder sb, String value) {
+    sb.append('"');
+    for (int i = 0; i < value.length(); i++) {
+      final char c = value.charAt(i);
+      switch (c) {
+        case '"':
+          sb.append("\\\"");
+          break;
+        case '\\':
+          sb.append("\\\\");
+          break;
+        case '\n':
+          sb.append("\\n");
+          break;
+        case '\r':
+          sb.append("\\r");
+          break;
+        case '\t':
+          sb.append("\\t");
+          break;
+        default:
+          if (c < 0x20) {
+            sb.append(String.format("\\u%04x", (int) c));
+          } else {
+            sb.append(c);
+          }
+      }
+    }
+    sb.append('"');
+  }
+
+  private Object readValue() throws IOException {
+    skipWhitespace();
+    if (position >= json.length()) {
+      throw error("Unexpected end");
+    }
+    final char c = json.charAt(position);
+    switch (c) {
+      case '{':
+        return readObject();
+      case '[':
+        return readArray();
+      case '"':
+        return readString();
+      case 't':
+        return readLiteral("true", Boolean.TRUE);
+      case 'f':
+        return readLiteral("false", Boolean.FALSE);
+      case 'n':
+        return readLiteral("null", null);
+      default:
+        return readNumber();
+    }
+  }
+
+  private Map<String, Object> readObject() throws IOException {
+    final Map<String, Object> map = new LinkedHashMap<>();
+    position++;
+    skipWhitespace();
+    if (consume('}')) {
+      return map;
+    }
+    do {
+      skipWhitespace();
+      if (position >= json.length() || json.charAt(position) != '"') {
+        throw error("Expected name");
+      }
+      final String name = readString();
+      skipWhitespace();
+      if (!consume(':')) {
+        throw error("Expected ':'");
+      }
+      map.put(name, readValue());
+      skipWhitespace();
+    } while (consume(','));
+    if (!consume('}')) {
+      throw error("Expected '}'");
+    }
+    return map;
+  }
+
+  private List<Object> readArray() throws IOException {
+    final List<Object> list = new ArrayList<>();
+    position++;
+    skipWhitespace();
+    if (consume(']')) {
+      return list;
+    }
+    do {
+      list.add(readValue());
+      skipWhitespace();
+    } while (consume(','));
+    if (!consume(']')) {
+      throw error("Expected ']'");
+    }
+    return list;
+  }
+
+  private String readString() throws IOException {
+    position++;
+    final StringBuilder sb = new StringBuilder();
+    while (position < json.length()) {
+      final char c = json.charAt(position++);
+      if (c == '"') {
+        return sb.toString();
+      }
+      if (c != '\\') {
+        sb.append(c);
+        continue;
+      }
+      if (position >= json.length()) {
+        break;
+      }
+      final char escaped = json.charAt(position++);
+      switch (escaped) {
+        case 'b':
+          sb.append('\b');
+          break;
+        case 'f':
+          sb.append('\f');
+          break;
+        case 'n':
+          sb.append('\n');
+          break;
+        case 'r':
+          sb.append('\r');
+          break;
+        case 't':
+          sb.append('\t');
+          break;
+        case 'u':
+          if (position + 4 > json.length()) {
+            throw error("Invalid unicode escape");
+          }
+          try {
+            sb.append((char) Integer.parseInt(json.substring(position, position + 4), 16));
+          } catch (NumberFormatException e) {
+            throw error("Invalid unicode escape");
+          }
+          position += 4;
+          break;
+        default:
+          sb.append(escaped);
+      }
+    }
+    throw error("Unterminated string");
+  }
+
+  private Object readLiteral(String literal, Object value) throws IOException {
+    if (!json.startsWith(literal, position)) {
+      throw error("Unexpected value");
+    }
+    position += literal.length();
+    return value;
+  }
+
+  private Number readNumber() throws IOException {
+    final int start = position;
+    while (position < json.length() && "+-0123456789.eE".indexOf(json.charAt(position)) >= 0) {
+      position++;
+    }
+    final String number = json.substring(start, position);
+    try {
+      if (number.indexOf('.') < 0 && number.indexOf('e') < 0 && number.indexOf('E') < 0) {
+        return Long.parseLong(number);
+      }
+      return Double.parseDouble(number);
+    } catch (NumberFormatException e) {
+      throw error("Invalid number '" + number + "'");
+    }
+  }
+
+  private boolean consume(char c) {
+    if (position < json.length() && json.charAt(position) == c) {
+      position++;
+      return true;
+    }
+    return false;
+  }
+
+  private void skipWhitespace() {
+    while (position < json.length() && Character.isWhitespace(json.charAt(position))) {
+      position++;
+    }
+  }
+
+  private IOException error(String message) {
+    return new IOException(message + " at position " + position + " of JSON");
+  }
+}
@@ -0,0 +1,287 @@
+/*
+ * Copyright 2014 otros.systems@gmail.com
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package pl.otros.swing.suggest;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recorded typing session: initial text and caret followed by document edits and caret moves with their times,
+ * see {@link KeystrokeTraceRecorder} and {@link KeystrokeTraceReplayer}.
+ * <p>
+ * Trace file is compact binary stream. Times are stored as microseconds elapsed since previous event, times, offsets
+ * and lengths as variable length ints, inserted text in UTF-8.
+ * </p>
+ * <pre>
+ * header: magic, version (2 ints), initial text length (bytes), initial text, caret dot, caret mark
+ * event:  type (byte), time delta, insert: offset, text length (bytes), text | remove: offset, length | caret: dot, mark
+ * </pre>
+ */
+public class KeystrokeTrace {
+
+  static final int MAGIC = 0x4f53_4b54;
+  static final int VERSION = 1;
+  private static final int END = 0;
+
+  public enum EventType {
+    INSERT, REMOVE, CARET
+  }
+
+  private final String initialText;
+  private final int initialDot;
+  private final int initialMark;
+  private final List<Event> events;
+
+  /**
+   * @param events events ordered by time
+   */
+  public KeystrokeTrace(String initialText, int initialDot, int initialMark, List<Event> events) {
+    this.initialText = initialText;
+    this.initialDot = initialDot;
+    this.initialMark = initialMark;
+    this.events = Collections.unmodifiableList(new ArrayList<>(events));
+  }
+
+  public String getInitialText() {
+    return initialText;
+  }
+
+  public int getInitialDot() {
+    return initialDot;
+  }
+
+  public int getInitialMark() {
+    return initialMark;
+  }
+
+  public List<Event> getEvents() {
+    return events;
+  }
+
+  /**
+   * @return time of last event in nanoseconds
+   */
+  public long getDuration() {
+    return events.isEmpty() ? 0 : events.get(events.size() - 1).getTimeNanos();
+  }
+
+  public void write(Path file) throws IOException {
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      writeString(out, initialText);
+      writeVarLong(out, initialDot);
+      writeVarLong(out, initialMark);
+      long lastMicros = 0;
+      for (Event event : events) {
+        final long micros = TimeUnit.NANOSECONDS.toMicros(event.timeNanos);
+        out.writeByte(event.type.ordinal() + 1);
+        writeVarLong(out, Math.max(0, micros - lastMicros));
+        lastMicros = Math.max(lastMicros, micros);
+        writeVarLong(out, event.offset);
+        switch (event.type) {
+          case INSERT:
+            writeString(out, event.text);
+            break;
+          case REMOVE:
+            writeVarLong(out, event.length);
+            break;
+          case CARET:
+            writeVarLong(out, event.mark);
+            break;
+        }
+      }
+      out.writeByte(END);
+    }
+  }
+
+  public static KeystrokeTrace read(Path file) throws IOException {
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      if (in.readInt() != MAGIC) {
+        throw new IOException("Not a keystroke trace: " + file);
+      }
+      final int version = in.readInt();
+      if (version != VERSION) {
+        throw new IOException("Unsupported version of keystroke trace: " + version);
+      }
+      final String initialText = readString(in);
+      final int initialDot = (int) readVarLong(in);
+      final int initialMark = (int) readVarLong(in);
+      final EventType[] types = EventType.values();
+      final List<Event> events = new ArrayList<>();
+      long micros = 0;
+      int type;
+      while ((type = in.readByte()) != END) {
+        if (type < 1 || type > types.length) {
+          throw new IOException("Unknown event type " + type + " in " + file);
+        }
+        micros += readVarLong(in);
+        final long time = TimeUnit.MICROSECONDS.toNanos(micros);
+        final int offset = (int) readVarLong(in);
+        switch (types[type - 1]) {
+          case INSERT:
+            events.add(Event.insert(time, offset, readString(in)));
+            break;
+          case REMOVE:
+            events.add(Event.remove(time, offset, (int) readVarLong(in)));
+            break;
+          case CARET:
+            events.add(Event.caret(time, offset, (int) readVarLong(in)));
+            break;
+        }
+      }
+      return new KeystrokeTrace(initialText, initialDot, initialMark, events);
+    }
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    writeVarLong(out, bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    final byte[] bytes = new byte[(int) readVarLong(in)];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+    while ((value & ~0x7FL) != 0) {
+      out.writeByte((int) (value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    out.writeByte((int) value);
+  }
+
+  private static long readVarLong(DataInputStream in) throws IOException {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      final int b = in.readUnsignedByte();
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("Malformed variable length int");
+  }
+
+  @Override
+  public String toString() {
+    return "KeystrokeTrace{" +
+      "events=" + events.size() +
+      ", durationMillis=" + TimeUnit.NANOSECONDS.toMillis(getDuration()) +
+      '}';
+  }
+
+  /**
+   * Document edit or caret move
+   */
+  public static class Event {
+    private final EventType type;
+    private final long timeNanos;
+    private final int offset;
+    private final int length;
+    private final String text;
+    private final int mark;
+
+    private Event(EventType type, long timeNanos, int offset, int length, String text, int mark) {
+      this.type = type;
+      this.timeNanos = timeNanos;
+      this.offset = offset;
+      this.length = length;
+      this.text = text;
+      this.mark = mark;
+    }
+
+    public static Event insert(long timeNanos, int offset, String text) {
+      return new Event(EventType.INSERT, timeNanos, offset, text.length(), text, offset);
+    }
+
+    public static Event remove(long timeNanos, int offset, int length) {
+      return new Event(EventType.REMOVE, timeNanos, offset, length, "", offset);
+    }
+
+    /**
+     * @param dot caret position
+     * @param mark other end of selection, the same as dot if nothing is selected
+     */
+    public static Event caret(long timeNanos, int dot, int mark) {
+      return new Event(EventType.CARET, timeNanos, dot, 0, "", mark);
+    }
+
+    public EventType getType() {
+      return type;
+    }
+
+    /**
+     * @return time since start of recording
+     */
+    public long getTimeNanos() {
+      return timeNanos;
+    }
+
+    /**
+     * @return offset of edit or caret position (dot)
+     */
+    public int getOffset() {
+      return offset;
+    }
+
+    /**
+     * @return length of inserted or removed text
+     */
+    public int getLength() {
+      return length;
+    }
+
+    /**
+     * @return inserted text, empty for other events
+     */
+    public String getText() {
+      return text;
+    }
+
+    /**
+     * @return mark of caret
+     */
+    public int getMark() {
+      return mark;
+    }
+
+    @Override
+    public String toString() {
+      return type + "@" + TimeUnit.NANOSECONDS.toMillis(timeNanos) + "ms{" +
+        "offset=" + offset +
+        (type == EventType.INSERT ? ", text='" + text + '\'' : "") +
+        (type == EventType.REMOVE ? ", length=" + length : "") +
+        (type == EventType.CARET ? ", mark=" + mark : "") +
+        '}';
+    }
+  }
+}
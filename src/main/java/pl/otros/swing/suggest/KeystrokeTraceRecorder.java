@@ -0,0 +1,116 @@
+/*
+ * Copyright 2014 otros.systems@gmail.com
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package pl.otros.swing.suggest;
+
+import javax.swing.event.CaretListener;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.JTextComponent;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records edits and caret moves of text component into {@link KeystrokeTrace}, so typing session of user can be
+ * replayed by {@link KeystrokeTraceReplayer}. Recorder have to be used on EDT.
+ */
+public class KeystrokeTraceRecorder {
+
+  private final JTextComponent textComponent;
+  private final List<KeystrokeTrace.Event> events = new ArrayList<>();
+  private final CaretListener caretListener = e -> record(KeystrokeTrace.Event.caret(elapsed(), e.getDot(), e.getMark()));
+  private final DocumentListener documentListener = new DocumentListener() {
+    @Override
+    public void insertUpdate(DocumentEvent e) {
+      try {
+        final String text = e.getDocument().getText(e.getOffset(), e.getLength());
+        record(KeystrokeTrace.Event.insert(elapsed(), e.getOffset(), text));
+      } catch (BadLocationException ex) {
+        ex.printStackTrace();
+      }
+    }
+
+    @Override
+    public void removeUpdate(DocumentEvent e) {
+      record(KeystrokeTrace.Event.remove(elapsed(), e.getOffset(), e.getLength()));
+    }
+
+    @Override
+    public void changedUpdate(DocumentEvent e) {
+      //attribute changes do not affect suggestions
+    }
+  };
+  private Document document;
+  private String initialText = "";
+  private int initialDot = 0;
+  private int initialMark = 0;
+  private long startNanos;
+
+  public KeystrokeTraceRecorder(JTextComponent textComponent) {
+    this.textComponent = textComponent;
+  }
+
+  /**
+   * Starts recording, current text and caret of component are initial state of trace. Events recorded before are
+   * discarded.
+   */
+  public void start() {
+    stop();
+    events.clear();
+    document = textComponent.getDocument();
+    initialText = textComponent.getText();
+    initialDot = textComponent.getCaret().getDot();
+    initialMark = textComponent.getCaret().getMark();
+    startNanos = System.nanoTime();
+    document.addDocumentListener(documentListener);
+    textComponent.addCaretListener(caretListener);
+  }
+
+  /**
+   * Stops recording
+   * @return recorded trace
+   */
+  public KeystrokeTrace stop() {
+    if (document != null) {
+      document.removeDocumentListener(documentListener);
+      textComponent.removeCaretListener(caretListener);
+      document = null;
+    }
+    return getTrace();
+  }
+
+  /**
+   * @return trace with events recorded so far
+   */
+  public KeystrokeTrace getTrace() {
+    return new KeystrokeTrace(initialText, initialDot, initialMark, events);
+  }
+
+  public boolean isRecording() {
+    return document != null;
+  }
+
+  private long elapsed() {
+    return System.nanoTime() - startNanos;
+  }
+
+  private void record(KeystrokeTrace.Event event) {
+    events.add(event);
+  }
+}
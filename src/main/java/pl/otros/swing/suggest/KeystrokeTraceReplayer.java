@@ -0,0 +1,245 @@
+/*
+ * Copyright 2014 otros.systems@gmail.com
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package pl.otros.swing.suggest;
+
+import javax.swing.*;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Caret;
+import javax.swing.text.Document;
+import javax.swing.text.JTextComponent;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Replays {@link KeystrokeTrace} through suggestion pipeline and reports time to suggestions, number of source calls
+ * and number of cancelled or wasted queries.
+ * <p>
+ * {@link #replay(KeystrokeTrace)} drives {@link SuggestionEngine} without UI using {@link VirtualClockScheduler}, so
+ * trace is replayed faster than real time. Execution time of source is charged to virtual clock, in asynchronous
+ * mode source is treated like executed on background thread. {@link #replay(KeystrokeTrace, JTextComponent,
+ * SuggestionRenderer, Executor)} replays trace in real time through decorated text component, including popup
+ * construction, component has to be displayed (for example under Xvfb).
+ * </p>
+ * Can be used from command line: <code>KeystrokeTraceReplayer trace.bin suggestions.txt [--async]</code>, suggestions
+ * file contains suggestion per line.
+ */
+public class KeystrokeTraceReplayer<T> {
+
+  /**
+   * Maximal time to wait for last query after replay in real time
+   */
+  private static final long IDLE_TIMEOUT_MILLIS = 10_000;
+
+  private final SuggestionSource<T> suggestionSource;
+  private Supplier<SchedulingPolicy> schedulingPolicy = FixedDelaySchedulingPolicy::new;
+  private boolean async = false;
+
+  public KeystrokeTraceReplayer(SuggestionSource<T> suggestionSource) {
+    this.suggestionSource = suggestionSource;
+  }
+
+  /**
+   * @param schedulingPolicy factory of scheduling policy, new policy is used for every replay
+   */
+  public void setSchedulingPolicy(Supplier<SchedulingPolicy> schedulingPolicy) {
+    this.schedulingPolicy = schedulingPolicy;
+  }
+
+  /**
+   * @param async true if source should be queried in background, like decorated component with executor
+   */
+  public void setAsync(boolean async) {
+    this.async = async;
+  }
+
+  /**
+   * Replays trace using virtual clock
+   */
+  public ReplayReport replay(KeystrokeTrace trace) {
+    final VirtualClockScheduler scheduler = new VirtualClockScheduler();
+    final TextBuffer text = new TextBuffer(trace.getInitialText());
+    text.select(trace.getInitialMark(), trace.getInitialDot());
+    final AtomicLong sourceCalls = new AtomicLong();
+    final LatencyRecorder latencies = new LatencyRecorder();
+    final SuggestionEngine<T> engine = new SuggestionEngine<>(text, countCalls(sourceCalls), new ReplayView<>(),
+      scheduler, async ? scheduler.getExecutor() : null);
+    engine.setSchedulingPolicy(schedulingPolicy.get());
+    engine.setMetricsListener(latencies);
+    for (KeystrokeTrace.Event event : trace.getEvents()) {
+      scheduler.executeAt(event.getTimeNanos(), () -> apply(event, text, engine));
+    }
+    final long start = System.nanoTime();
+    scheduler.runAll();
+    engine.dispose();
+    return new ReplayReport(trace.getEvents().size(), sourceCalls.get(), latencies, System.nanoTime() - start);
+  }
+
+  private static <T> void apply(KeystrokeTrace.Event event, TextBuffer text, SuggestionEngine<T> engine) {
+    switch (event.getType()) {
+      case INSERT:
+        text.insert(event.getOffset(), event.getText());
+        engine.textChanged();
+        break;
+      case REMOVE:
+        text.remove(event.getOffset(), event.getLength());
+        engine.textChanged();
+        break;
+      case CARET:
+        text.select(event.getMark(), event.getOffset());
+        engine.caretMoved();
+        break;
+    }
+  }
+
+  /**
+   * Replays trace in real time through text component decorated for the time of replay. Method waits for events and
+   * have to be called outside of EDT.
+   * @param textComponent displayed text component, not decorated
+   * @param executor executor used to query suggestion source, if null source is queried on EDT
+   */
+  public ReplayReport replay(KeystrokeTrace trace, JTextComponent textComponent, SuggestionRenderer<T> suggestionRenderer,
+                             Executor executor) throws InterruptedException, InvocationTargetException {
+    final AtomicLong sourceCalls = new AtomicLong();
+    final LatencyRecorder latencies = new LatencyRecorder();
+    SwingUtilities.invokeAndWait(() -> {
+      textComponent.setText(trace.getInitialText());
+      textComponent.getCaret().setDot(trace.getInitialMark());
+      textComponent.getCaret().moveDot(trace.getInitialDot());
+      SuggestDecorator.decorate(textComponent, countCalls(sourceCalls), suggestionRenderer, value -> {
+      }, false, executor);
+      SuggestDecorator.setSchedulingPolicy(textComponent, schedulingPolicy.get());
+      SuggestDecorator.setMetricsListener(textComponent, latencies);
+    });
+    final long start = System.nanoTime();
+    try {
+      for (KeystrokeTrace.Event event : trace.getEvents()) {
+        final long wait = start + event.getTimeNanos() - System.nanoTime();
+        if (wait > 0) {
+          TimeUnit.NANOSECONDS.sleep(wait);
+        }
+        SwingUtilities.invokeAndWait(() -> apply(event, textComponent));
+      }
+      final long deadline = System.currentTimeMillis() + IDLE_TIMEOUT_MILLIS;
+      while (!isIdle(textComponent) && System.currentTimeMillis() < deadline) {
+        TimeUnit.MILLISECONDS.sleep(10);
+      }
+    } finally {
+      SwingUtilities.invokeAndWait(() -> SuggestDecorator.undecorate(textComponent));
+    }
+    return new ReplayReport(trace.getEvents().size(), sourceCalls.get(), latencies, System.nanoTime() - start);
+  }
+
+  private static void apply(KeystrokeTrace.Event event, JTextComponent textComponent) {
+    final Document document = textComponent.getDocument();
+    try {
+      switch (event.getType()) {
+        case INSERT:
+          document.insertString(event.getOffset(), event.getText(), null);
+          break;
+        case REMOVE:
+          document.remove(event.getOffset(), event.getLength());
+          break;
+        case CARET:
+          final Caret caret = textComponent.getCaret();
+          caret.setDot(event.getMark());
+          caret.moveDot(event.getOffset());
+          break;
+      }
+    } catch (BadLocationException e) {
+      e.printStackTrace();
+    }
+  }
+
+  private static boolean isIdle(JTextComponent textComponent) throws InterruptedException, InvocationTargetException {
+    final boolean[] idle = new boolean[1];
+    SwingUtilities.invokeAndWait(() -> idle[0] = SuggestDecorator.getEngine(textComponent).isIdle());
+    return idle[0];
+  }
+
+  private SuggestionSource<T> countCalls(AtomicLong sourceCalls) {
+    return query -> {
+      sourceCalls.incrementAndGet();
+      return suggestionSource.getSuggestions(query);
+    };
+  }
+
+  /**
+   * View without UI, suggestions are only marked as displayed
+   */
+  private static class ReplayView<T> implements SuggestionView<T> {
+
+    private boolean showing = false;
+
+    @Override
+    public boolean isAvailable() {
+      return true;
+    }
+
+    @Override
+    public void showSuggestions(List<T> suggestions, SuggestionQuery query, QueryMetrics metrics) {
+      showing = true;
+    }
+
+    @Override
+    public void appendSuggestions(List<T> suggestions, QueryMetrics metrics) {
+    }
+
+    @Override
+    public void hideSuggestions() {
+      showing = false;
+    }
+
+    @Override
+    public boolean isShowingSuggestions() {
+      return showing;
+    }
+
+    @Override
+    public void nextPageAvailable() {
+      //suggestions are not scrolled during replay
+    }
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2) {
+      System.err.println("Usage: KeystrokeTraceReplayer <trace file> <suggestions file> [--async]");
+      System.exit(1);
+    }
+    final KeystrokeTrace trace = KeystrokeTrace.read(Paths.get(args[0]));
+    final List<BasicSuggestion> suggestions;
+    try (Stream<String> lines = Files.lines(Paths.get(args[1]), StandardCharsets.UTF_8)) {
+      suggestions = lines.filter(line -> !line.isEmpty()).map(line -> new BasicSuggestion(line, line)).collect(Collectors.toList());
+    }
+    final KeystrokeTraceReplayer<BasicSuggestion> replayer = new KeystrokeTraceReplayer<>(new PrefixIndexSuggestionSource(suggestions, true, 100));
+    replayer.setAsync(args.length > 2 && "--async".equals(args[2]));
+    final ReplayReport report = replayer.replay(trace);
+    System.out.println(trace);
+    System.out.println(report);
+    System.out.println(report.getLatencies());
+  }
+}
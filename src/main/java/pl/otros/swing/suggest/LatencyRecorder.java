@@ -0,0 +1,199 @@
+/*
+ * Copyright 2014 otros.systems@gmail.com
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package pl.otros.swing.suggest;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lightweight in-process recorder of query timings. Durations are counted in log-linear histogram buckets
+ * (16 buckets per power of two, relative error below 7%), so recording do not allocate memory and
+ * percentiles can be read at any time.
+ */
+public class LatencyRecorder implements SuggestionMetricsListener {
+
+  private final Histogram[] stages = new Histogram[SuggestionStage.values().length];
+  private final Histogram total = new Histogram();
+  private final AtomicLong queryCount = new AtomicLong();
+  private final AtomicLong cancelledCount = new AtomicLong();
+  private final AtomicLong resultCount = new AtomicLong();
+  private final AtomicLong cacheHitCount = new AtomicLong();
+  private final AtomicLong cacheMissCount = new AtomicLong();
+
+  public LatencyRecorder() {
+    for (int i = 0; i < stages.length; i++) {
+      stages[i] = new Histogram();
+    }
+  }
+
+  @Override
+  public void queryCompleted(QueryMetrics metrics) {
+    for (SuggestionStage stage : SuggestionStage.values()) {
+      stages[stage.ordinal()].record(metrics.getDuration(stage));
+    }
+    total.record(metrics.getTotalDuration());
+    queryCount.incrementAndGet();
+    resultCount.addAndGet(metrics.getResultCount());
+  }
+
+  @Override
+  public void queryCancelled(SuggestionQuery query) {
+    cancelledCount.incrementAndGet();
+  }
+
+  @Override
+  public void cacheAccessed(boolean hit) {
+    (hit ? cacheHitCount : cacheMissCount).incrementAndGet();
+  }
+
+  /**
+   * @param stage stage of query
+   * @param percentile percentile, for example 99
+   * @return upper bound of duration of stage in nanoseconds for given percentile of queries
+   */
+  public long getPercentile(SuggestionStage stage, double percentile) {
+    return stages[stage.ordinal()].percentile(percentile);
+  }
+
+  /**
+   * @return upper bound of total query duration in nanoseconds for given percentile of queries
+   */
+  public long getTotalPercentile(double percentile) {
+    return total.percentile(percentile);
+  }
+
+  /**
+   * Record duration not related to query stage, for example measured by test harness.
+   * Recorded durations are included in {@link #getTotalPercentile(double)}.
+   */
+  public void recordTotal(long durationNanos) {
+    total.record(durationNanos);
+  }
+
+  public long getQueryCount() {
+    return queryCount.get();
+  }
+
+  public long getCancelledCount() {
+    return cancelledCount.get();
+  }
+
+  public long getResultCount() {
+    return resultCount.get();
+  }
+
+  public long getCacheHitCount() {
+    return cacheHitCount.get();
+  }
+
+  public long getCacheMissCount() {
+    return cacheMissCount.get();
+  }
+
+  public void reset() {
+    for (Histogram stage : stages) {
+      stage.reset();
+    }
+    total.reset();
+    queryCount.set(0);
+    cancelledCount.set(0);
+    resultCount.set(0);
+    cacheHitCount.set(0);
+    cacheMissCount.set(0);
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder sb = new StringBuilder("LatencyRecorder{queries=").append(queryCount)
+      .append(", cancelled=").append(cancelledCount)
+      .append(", results=").append(resultCount)
+      .append(", cacheHits=").append(cacheHitCount)
+      .append(", cacheMisses=").append(cacheMissCount);
+    for (SuggestionStage stage : SuggestionStage.values()) {
+      appendPercentiles(sb, stage.name(), stages[stage.ordinal()]);
+    }
+    appendPercentiles(sb, "TOTAL", total);
+    return sb.append('}').toString();
+  }
+
+  private static void appendPercentiles(StringBuilder sb, String name, Histogram histogram) {
+    sb.append(", ").append(name)
+      .append("[p50=").append(millis(histogram.percentile(50)))
+      .append("ms, p99=").append(millis(histogram.percentile(99)))
+      .append("ms]");
+  }
+
+  private static double millis(long nanos) {
+    return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+  private static class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private final AtomicLongArray counts = new AtomicLongArray((64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS);
+
+    void record(long value) {
+      counts.incrementAndGet(bucket(Math.max(0, value)));
+    }
+
+    long percentile(double percentile) {
+      long count = 0;
+      for (int i = 0; i < counts.length(); i++) {
+        count += counts.get(i);
+      }
+      if (count == 0) {
+        return 0;
+      }
+      final long target = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+      long cumulative = 0;
+      for (int i = 0; i < counts.length(); i++) {
+        cumulative += counts.get(i);
+        if (cumulative >= target) {
+          return upperBound(i);
+        }
+      }
+      return upperBound(counts.length() - 1);
+    }
+
+    void reset() {
+      for (int i = 0; i < counts.length(); i++) {
+        counts.set(i, 0);
+      }
+    }
+
+    private static int bucket(long value) {
+      if (value < SUB_BUCKETS) {
+        return (int) value;
+      }
+      final int exponent = 63 - Long.numberOfLeadingZeros(value);
+      final int shift = exponent - SUB_BUCKET_BITS;
+      final int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+      return (shift + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long upperBound(int bucket) {
+      if (bucket < SUB_BUCKETS) {
+        return bucket;
+      }
+      final int shift = bucket / SUB_BUCKETS - 1;
+      final long subBucket = bucket % SUB_BUCKETS;
+      return ((SUB_BUCKETS + subBucket) << shift) + (1L << shift) - 1;
+    }
+  }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2014 otros.systems@gmail.com
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package pl.otros.swing.suggest;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Virtualized popup based on {@link JList}. Suggestion components are used as rubber stamps and only rows
+ * visible in viewport are rendered, so cost of displaying suggestions do not depend on number of suggestions.
+ */
+class ListSuggestionPopup<T> implements SuggestionPopup<T> {
+
+  /**
+   * Number of suggestions used to calculate width of row
+   */
+  private static final int ROW_WIDTH_SAMPLE_SIZE = 100;
+
+  private final SuggestionDocumentListener<T> owner;
+  private final SuggestionListModel<T> model = new SuggestionListModel<>();
+  private final JList<T> list = new JList<>(model);
+  private final SuggestionListCellRenderer<T> cellRenderer;
+  private SuggestionQuery query;
+
+  ListSuggestionPopup(SuggestionDocumentListener<T> owner, SuggestionRenderer<T> suggestionRenderer) {
+    this.owner = owner;
+    this.cellRenderer = new SuggestionListCellRenderer<>(suggestionRenderer);
+    list.setCellRenderer(cellRenderer);
+    list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+    list.addListSelectionListener(e -> {
+      if (!e.getValueIsAdjusting() && list.getSelectedIndex() >= 0) {
+        owner.suggestionHighlighted(list.getSelectedIndex());
+      }
+    });
+    list.addKeyListener(new KeyAdapter() {
+      @Override
+      public void keyPressed(KeyEvent e) {
+        final int keyCode = e.getKeyCode();
+        if (keyCode == KeyEvent.VK_UP && list.getSelectedIndex() <= 0) {
+          list.clearSelection();
+          owner.returnFocusToText();
+          e.consume();
+        } else if (keyCode == KeyEvent.VK_ENTER && list.getSelectedIndex() >= 0) {
+          owner.suggestionSelected(list.getSelectedValue(), query);
+          e.consume();
+        } else if (keyCode == KeyEvent.VK_ESCAPE) {
+          owner.cancelSuggestions();
+        }
+      }
+
+      @Override
+      public void keyTyped(KeyEvent e) {
+        owner.forwardKeyTyped(e);
+      }
+    });
+    MouseAdapter mouseAdapter = new MouseAdapter() {
+      @Override
+      public void mouseClicked(MouseEvent e) {
+        final int index = rowAt(e.getPoint());
+        if (index >= 0) {
+          owner.suggestionSelected(model.getElementAt(index), query);
+        }
+      }
+
+      @Override
+      public void mouseMoved(MouseEvent e) {
+        final int index = rowAt(e.getPoint());
+        if (index >= 0) {
+          list.setSelectedIndex(index);
+        }
+      }
+
+      @Override
+      public void mouseExited(MouseEvent e) {
+        if (!list.isFocusOwner()) {
+          list.clearSelection();
+        }
+      }
+    };
+    list.addMouseListener(mouseAdapter);
+    list.addMouseMotionListener(mouseAdapter);
+  }
+
+  private int rowAt(Point point) {
+    final int index = list.locationToIndex(point);
+    if (index >= 0 && list.getCellBounds(index, index).contains(point)) {
+      return index;
+    }
+    return -1;
+  }
+
+  @Override
+  public JComponent getView() {
+    return list;
+  }
+
+  @Override
+  public boolean setSuggestions(List<T> suggestions, SuggestionQuery query) {
+    this.query = query;
+    if (model.isSame(suggestions)) {
+      return false;
+    }
+    list.clearSelection();
+    list.setFixedCellWidth(0);
+    list.setFixedCellHeight(0);
+    updateCellSize(suggestions);
+    model.setSuggestions(suggestions);
+    list.setVisibleRowCount(suggestions.size());
+    list.ensureIndexIsVisible(0);
+    return true;
+  }
+
+  @Override
+  public void appendSuggestions(List<T> suggestions) {
+    updateCellSize(suggestions);
+    model.appendSuggestions(suggestions);
+    list.setVisibleRowCount(model.getSize());
+  }
+
+  /**
+   * Sets fixed cell size. Without it {@link JList} would render every row to calculate preferred size.
+   */
+  private void updateCellSize(List<T> suggestions) {
+    int width = list.getFixedCellWidth();
+    int height = list.getFixedCellHeight();
+    final int sampleSize = Math.min(suggestions.size(), ROW_WIDTH_SAMPLE_SIZE);
+    for (int i = 0; i < sampleSize; i++) {
+      final Dimension size = cellRenderer.getListCellRendererComponent(list, suggestions.get(i), i, false, false).getPreferredSize();
+      width = Math.max(width, size.width);
+      height = Math.max(height, size.height);
+    }
+    list.setFixedCellWidth(width);
+    list.setFixedCellHeight(height);
+  }
+
+  @Override
+  public void focusFirstSuggestion() {
+    if (model.getSize() > 0) {
+      list.setSelectedIndex(0);
+      list.requestFocus();
+    }
+  }
+
+  @Override
+  public boolean isPopupComponent(Component component) {
+    return component == list;
+  }
+
+  @SuppressWarnings("serial")
+  private static class SuggestionListModel<T> extends AbstractListModel<T> {
+
+    private List<T> suggestions = new ArrayList<>();
+
+    boolean isSame(List<T> suggestions) {
+      return this.suggestions.equals(suggestions);
+    }
+
+    /**
+     * Replace suggestions, firing events only for changed range
+     */
+    void setSuggestions(List<T> suggestions) {
+      final int oldSize = this.suggestions.size();
+      final int newSize = suggestions.size();
+      final int commonSize = Math.min(oldSize, newSize);
+      int firstChanged = 0;
+      while (firstChanged < commonSize && Objects.equals(this.suggestions.get(firstChanged), suggestions.get(firstChanged))) {
+        firstChanged++;
+      }
+      this.suggestions = new ArrayList<>(suggestions);
+      if (firstChanged < commonSize) {
+        fireContentsChanged(this, firstChanged, commonSize - 1);
+      }
+      if (oldSize > newSize) {
+        fireIntervalRemoved(this, newSize, oldSize - 1);
+      } else if (newSize > oldSize) {
+        fireIntervalAdded(this, oldSize, newSize - 1);
+      }
+    }
+
+    void appendSuggestions(List<T> suggestions) {
+      if (suggestions.isEmpty()) {
+        return;
+      }
+      final int index = this.suggestions.size();
+      this.suggestions.addAll(suggestions);
+      fireIntervalAdded(this, index, this.suggestions.size() - 1);
+    }
+
+    @Override
+    public int getSize() {
+      return suggestions.size();
+    }
+
+    @Override
+    public T getElementAt(int index) {
+      return suggestions.get(index);
+    }
+  }
+
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright 2014 otros.systems@gmail.com
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package pl.otros.swing.suggest;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Suggestion source completing token before caret using dictionary file written by {@link MappedDictionaryWriter}.
+ * <p>
+ * File is memory mapped, so opening dictionary do not read it and suggestions are kept outside of heap. Block
+ * containing prefix is found by binary search over first values of blocks, then block is decoded sequentially.
+ * {@link BasicSuggestion} objects are created only for returned results. Source can be queried concurrently.
+ * </p>
+ */
+public class MappedDictionarySuggestionSource implements SuggestionSource<BasicSuggestion> {
+
+  static final int MAGIC = 0x4F534431;
+  static final int VERSION = 1;
+  static final int FLAG_IGNORE_CASE = 1;
+  static final int HEADER_SIZE = 24;
+
+  private final MappedByteBuffer buffer;
+  private final boolean ignoreCase;
+  private final int count;
+  private final int blockSize;
+  private final int blockCount;
+  private final int maxResults;
+
+  /**
+   * @param file dictionary file
+   * @param maxResults maximum number of returned suggestions
+   * @throws IOException if file can't be read or it is not a dictionary
+   */
+  public MappedDictionarySuggestionSource(Path file, int maxResults) throws IOException {
+    this.maxResults = maxResults;
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException("Dictionary is too large: " + file);
+      }
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+      throw new IOException("File is not a suggestion dictionary: " + file);
+    }
+    if (buffer.getInt(4) != VERSION) {
+      throw new IOException("Unsupported dictionary version " + buffer.getInt(4) + ": " + file);
+    }
+    ignoreCase = (buffer.getInt(8) & FLAG_IGNORE_CASE) != 0;
+    count = buffer.getInt(12);
+    blockSize = buffer.getInt(16);
+    blockCount = buffer.getInt(20);
+  }
+
+  @Override
+  public List<BasicSuggestion> getSuggestions(SuggestionQuery query) {
+    final CharSequence token = query.getTokenBeforeCaret();
+    if (token.length() == 0) {
+      return new ArrayList<>();
+    }
+    return complete(token, query.getOffset(), query.getPageLimit(maxResults));
+  }
+
+  /**
+   * Find suggestions with display value starting with prefix
+   * @param prefix prefix of display value
+   * @param limit maximum number of returned suggestions
+   * @return suggestions in display value order
+   */
+  public List<BasicSuggestion> complete(CharSequence prefix, int limit) {
+    return complete(prefix, 0, limit);
+  }
+
+  /**
+   * Find page of suggestions with display value starting with prefix
+   * @param prefix prefix of display value
+   * @param offset number of matching suggestions to skip
+   * @param limit maximum number of returned suggestions
+   * @return suggestions in display value order
+   */
+  public List<BasicSuggestion> complete(CharSequence prefix, int offset, int limit) {
+    final ArrayList<BasicSuggestion> result = new ArrayList<>();
+    int skipped = 0;
+    if (count == 0 || limit <= 0) {
+      return result;
+    }
+    final Cursor cursor = new Cursor(Math.max(0, firstBlockNotLower(prefix) - 1));
+    while (cursor.next()) {
+      final int compare = comparePrefix(cursor.display, prefix);
+      if (compare > 0) {
+        break;
+      }
+      if (compare == 0 && skipped < offset) {
+        skipped++;
+      } else if (compare == 0) {
+        result.add(cursor.toSuggestion());
+        if (result.size() >= limit) {
+          break;
+        }
+      }
+    }
+    return result;
+  }
+
+  public int size() {
+    return count;
+  }
+
+  public boolean isIgnoreCase() {
+    return ignoreCase;
+  }
+
+  /**
+   * @return index of first block with first value not lower than prefix
+   */
+  private int firstBlockNotLower(CharSequence prefix) {
+    int low = 0;
+    int high = blockCount;
+    while (low < high) {
+      final int middle = (low + high) >>> 1;
+      final Cursor cursor = new Cursor(middle);
+      cursor.next();
+      if (comparePrefix(cursor.display, prefix) < 0) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Compares beginning of value with prefix, the same way as suggestions were sorted.
+   */
+  private int comparePrefix(CharSequence value, CharSequence prefix) {
+    final int length = value.length();
+    final int prefixLength = prefix.length();
+    final int limit = Math.min(length, prefixLength);
+    for (int i = 0; i < limit; i++) {
+      char c1 = value.charAt(i);
+      char c2 = prefix.charAt(i);
+      if (c1 != c2) {
+        if (ignoreCase) {
+          c1 = Character.toLowerCase(Character.toUpperCase(c1));
+          c2 = Character.toLowerCase(Character.toUpperCase(c2));
+          if (c1 == c2) {
+            continue;
+          }
+        }
+        return c1 - c2;
+      }
+    }
+    return length >= prefixLength ? 0 : -1;
+  }
+
+  /**
+   * Sequential decoder of suggestions starting from beginning of block. Reads buffer only by absolute positions.
+   */
+  private class Cursor {
+
+    private final StringBuilder display = new StringBuilder();
+    private int index;
+    private int position;
+    private int insertPosition;
+    private int insertLength;
+
+    Cursor(int block) {
+      index = block * blockSize;
+    }
+
+    boolean next() {
+      if (index >= count) {
+        return false;
+      }
+      if (index % blockSize == 0) {
+        position = buffer.getInt(HEADER_SIZE + 4 * (index / blockSize));
+      }
+      final int shared = readVarInt();
+      display.setLength(shared);
+      final int suffixLength = readVarInt();
+      decode(position, suffixLength, display);
+      position += suffixLength;
+      insertLength = readVarInt() - 1;
+      insertPosition = position;
+      if (insertLength > 0) {
+        position += insertLength;
+      }
+      index++;
+      return true;
+    }
+
+    BasicSuggestion toSuggestion() {
+      final String toDisplay = display.toString();
+      if (insertLength < 0) {
+        return new BasicSuggestion(toDisplay, toDisplay);
+      }
+      final StringBuilder toInsert = new StringBuilder(insertLength);
+      decode(insertPosition, insertLength, toInsert);
+      return new BasicSuggestion(toDisplay, toInsert.toString());
+    }
+
+    private int readVarInt() {
+      int value = 0;
+      int shift = 0;
+      byte b;
+      do {
+        b = buffer.get(position++);
+        value |= (b & 0x7F) << shift;
+        shift += 7;
+      } while ((b & 0x80) != 0);
+      return value;
+    }
+  }
+
+  /**
+   * Decodes UTF-8 bytes from buffer without creating temporary arrays
+   */
+  private void decode(int position, int length, StringBuilder out) {
+    final int end = position + length;
+    while (position < end) {
+      final int b = buffer.get(position++) & 0xFF;
+      if (b < 0x80) {
+        out.append((char) b);
+      } else if (b < 0xE0) {
+        out.append((char) (((b & 0x1F) << 6) | (buffer.get(position++) & 0x3F)));
+      } else if (b < 0xF0) {
+        out.append((char) (((b & 0x0F) << 12) | ((buffer.get(position++) & 0x3F) << 6) | (buffer.get(position++) & 0x3F)));
+      } else {
+        final int codePoint = ((b & 0x07) << 18) | ((buffer.get(position++) & 0x3F) << 12)
+          | ((buffer.get(position++) & 0x3F) << 6) | (buffer.get(position++) & 0x3F);
+        out.appendCodePoint(codePoint);
+      }
+    }
+  }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2014 otros.systems@gmail.com
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package pl.otros.swing.suggest;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Writes dictionary of {@link BasicSuggestion} read by {@link MappedDictionarySuggestionSource}.
+ * <p>
+ * Suggestions are sorted by display value and divided into blocks. First display value of block is stored in full,
+ * next ones store only length of prefix shared with previous value and remaining suffix (front coding). Insert value
+ * is stored only if it is different from display value. Strings are encoded in UTF-8, lengths as variable length ints.
+ * </p>
+ * <pre>
+ * header:  magic, version, flags, suggestion count, block size, block count (6 ints)
+ * index:   offset of every block in file (int per block)
+ * entry:   shared prefix length (chars), suffix length (bytes), suffix, insert length + 1 (bytes) or 0, insert value
+ * </pre>
+ * Can be used from command line: <code>MappedDictionaryWriter input.txt output.dict [--ignore-case]</code>, input
+ * file contains suggestion per line, display and insert value separated by tab.
+ */
+public class MappedDictionaryWriter {
+
+  public static final int DEFAULT_BLOCK_SIZE = 16;
+
+  public static void write(Collection<BasicSuggestion> suggestions, Path file, boolean ignoreCase) throws IOException {
+    write(suggestions, file, ignoreCase, DEFAULT_BLOCK_SIZE);
+  }
+
+  /**
+   * @param suggestions suggestions to write, duplicates are removed
+   * @param file dictionary file
+   * @param ignoreCase true if dictionary should be searched ignoring case
+   * @param blockSize number of front coded suggestions in block
+   */
+  public static void write(Collection<BasicSuggestion> suggestions, Path file, boolean ignoreCase, int blockSize) throws IOException {
+    if (blockSize <= 0) {
+      throw new IllegalArgumentException("Block size have to be positive: " + blockSize);
+    }
+    final BasicSuggestion[] sorted = suggestions.toArray(new BasicSuggestion[suggestions.size()]);
+    Arrays.sort(sorted, PrefixIndexSuggestionSource.indexOrder(ignoreCase));
+
+    final ByteArrayOutputStream data = new ByteArrayOutputStream();
+    final List<Integer> blockOffsets = new ArrayList<>();
+    int count = 0;
+    String previous = "";
+    for (int i = 0; i < sorted.length; i++) {
+      final BasicSuggestion suggestion = sorted[i];
+      if (i > 0 && suggestion.equals(sorted[i - 1])) {
+        continue;
+      }
+      final String toDisplay = suggestion.getToDisplay();
+      int shared = 0;
+      if (count % blockSize == 0) {
+        blockOffsets.add(data.size());
+      } else {
+        shared = sharedPrefix(previous, toDisplay);
+      }
+      writeVarInt(data, shared);
+      writeString(data, toDisplay.substring(shared), 0);
+      if (toDisplay.equals(suggestion.getToInsert())) {
+        writeVarInt(data, 0);
+      } else {
+        writeString(data, suggestion.getToInsert(), 1);
+      }
+      previous = toDisplay;
+      count++;
+    }
+
+    final int dataOffset = MappedDictionarySuggestionSource.HEADER_SIZE + 4 * blockOffsets.size();
+    if ((long) dataOffset + data.size() > Integer.MAX_VALUE) {
+      throw new IOException("Dictionary is too large: " + ((long) dataOffset + data.size()) + " bytes");
+    }
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+      out.writeInt(MappedDictionarySuggestionSource.MAGIC);
+      out.writeInt(MappedDictionarySuggestionSource.VERSION);
+      out.writeInt(ignoreCase ? MappedDictionarySuggestionSource.FLAG_IGNORE_CASE : 0);
+      out.writeInt(count);
+      out.writeInt(blockSize);
+      out.writeInt(blockOffsets.size());
+      for (Integer blockOffset : blockOffsets) {
+        out.writeInt(dataOffset + blockOffset);
+      }
+      data.writeTo(out);
+    }
+  }
+
+  /**
+   * @return length of shared prefix, not splitting surrogate pair
+   */
+  private static int sharedPrefix(String previous, String value) {
+    final int limit = Math.min(previous.length(), value.length());
+    int shared = 0;
+    while (shared < limit && previous.charAt(shared) == value.charAt(shared)) {
+      shared++;
+    }
+    if (shared > 0 && Character.isHighSurrogate(value.charAt(shared - 1))) {
+      shared--;
+    }
+    return shared;
+  }
+
+  private static void writeString(ByteArrayOutputStream out, String value, int lengthBias) {
+    final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    writeVarInt(out, bytes.length + lengthBias);
+    out.write(bytes, 0, bytes.length);
+  }
+
+  private static void writeVarInt(ByteArrayOutputStream out, int value) {
+    while ((value & ~0x7F) != 0) {
+      out.write((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    out.write(value);
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2) {
+      System.err.println("Usage: MappedDictionaryWriter <input file> <dictionary file> [--ignore-case]");
+      System.exit(1);
+    }
+    final boolean ignoreCase = args.length > 2 && "--ignore-case".equals(args[2]);
+    final List<BasicSuggestion> suggestions = new ArrayList<>();
+    try (Stream<String> lines = Files.lines(Paths.get(args[0]), StandardCharsets.UTF_8)) {
+      lines.filter(line -> !line.isEmpty()).forEach(line -> {
+        final int tab = line.indexOf('\t');
+        suggestions.add(tab < 0
+          ? new BasicSuggestion(line, line)
+          : new BasicSuggestion(line.substring(0, tab), line.substring(tab + 1)));
+      });
+    }
+    final long start = System.currentTimeMillis();
+    write(suggestions, Paths.get(args[1]), ignoreCase);
+    System.out.println("Written " + suggestions.size() + " suggestions to " + args[1] + " in "
+      + (System.currentTimeMillis() - start) + "ms, " + Files.size(Paths.get(args[1])) + " bytes");
+  }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2014 otros.systems@gmail.com
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package pl.otros.swing.suggest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Suggestion source completing token before caret using prefix index of {@link BasicSuggestion}.
+ * <p>
+ * Suggestions are sorted by {@link BasicSuggestion#getToDisplay()} and packed into one char array. Display and insert
+ * values of suggestion are stored one after another, insert value is not stored at all if it is the same as display
+ * value. Index requires two ints per suggestion, {@link BasicSuggestion} objects are created only for returned results.
+ * </p>
+ * <p>
+ * Completions are found by binary search for range of suggestions starting with prefix, and first
+ * <code>maxResults</code> suggestions from range are returned.
+ * </p>
+ */
+public class PrefixIndexSuggestionSource implements SuggestionSource<BasicSuggestion> {
+
+  private final char[] arena;
+  /**
+   * Start of display value of suggestion in arena. Last element is length of arena.
+   */
+  private final int[] offsets;
+  /**
+   * End of display value of suggestion in arena. Insert value is stored from display end to offset of next suggestion.
+   */
+  private final int[] displayEnds;
+  private final boolean ignoreCase;
+  private final int maxResults;
+
+  /**
+   * @param suggestions suggestions to index
+   * @param ignoreCase true if prefix should be matched ignoring case
+   * @param maxResults maximum number of returned suggestions
+   */
+  public PrefixIndexSuggestionSource(Collection<BasicSuggestion> suggestions, boolean ignoreCase, int maxResults) {
+    this.ignoreCase = ignoreCase;
+    this.maxResults = maxResults;
+    final BasicSuggestion[] sorted = suggestions.toArray(new BasicSuggestion[suggestions.size()]);
+    Arrays.sort(sorted, indexOrder(ignoreCase));
+
+    int count = 0;
+    long arenaSize = 0;
+    for (int i = 0; i < sorted.length; i++) {
+      final BasicSuggestion suggestion = sorted[i];
+      if (count > 0 && suggestion.equals(sorted[count - 1])) {
+        continue;
+      }
+      sorted[count++] = suggestion;
+      arenaSize += suggestion.getToDisplay().length();
+      if (!suggestion.getToDisplay().equals(suggestion.getToInsert())) {
+        arenaSize += suggestion.getToInsert().length();
+      }
+    }
+    if (arenaSize > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Suggestions are too large to be indexed: " + arenaSize + " chars");
+    }
+
+    arena = new char[(int) arenaSize];
+    offsets = new int[count + 1];
+    displayEnds = new int[count];
+    int position = 0;
+    for (int i = 0; i < count; i++) {
+      final String toDisplay = sorted[i].getToDisplay();
+      final String toInsert = sorted[i].getToInsert();
+      offsets[i] = position;
+      toDisplay.getChars(0, toDisplay.length(), arena, position);
+      position += toDisplay.length();
+      displayEnds[i] = position;
+      if (!toDisplay.equals(toInsert)) {
+        toInsert.getChars(0, toInsert.length(), arena, position);
+        position += toInsert.length();
+      }
+    }
+    offsets[count] = position;
+  }
+
+  /**
+   * Order of suggestions in index. Equal suggestions are adjacent, so duplicates can be removed by comparing with
+   * previous suggestion.
+   */
+  static Comparator<BasicSuggestion> indexOrder(boolean ignoreCase) {
+    final Comparator<BasicSuggestion> displayOrder = Comparator.comparing(BasicSuggestion::getToDisplay,
+      ignoreCase ? String.CASE_INSENSITIVE_ORDER : Comparator.naturalOrder());
+    return displayOrder
+      .thenComparing(BasicSuggestion::getToDisplay)
+      .thenComparing(BasicSuggestion::getToInsert);
+  }
+
+  @Override
+  public List<BasicSuggestion> getSuggestions(SuggestionQuery query) {
+    final CharSequence token = query.getTokenBeforeCaret();
+    if (token.length() == 0) {
+      return new ArrayList<>();
+    }
+    return complete(token.toString(), query.getOffset(), query.getPageLimit(maxResults));
+  }
+
+  /**
+   * Find suggestions with display value starting with prefix
+   * @param prefix prefix of display value
+   * @param limit maximum number of returned suggestions
+   * @return suggestions in display value order
+   */
+  public List<BasicSuggestion> complete(CharSequence prefix, int limit) {
+    return complete(prefix, 0, limit);
+  }
+
+  /**
+   * Find page of suggestions with display value starting with prefix
+   * @param prefix prefix of display value
+   * @param offset number of matching suggestions to skip
+   * @param limit maximum number of returned suggestions
+   * @return suggestions in display value order
+   */
+  public List<BasicSuggestion> complete(CharSequence prefix, int offset, int limit) {
+    final int lowerBound = lowerBound(prefix);
+    final int upperBound = upperBound(prefix, lowerBound);
+    final int from = (int) Math.min((long) lowerBound + offset, upperBound);
+    final int to = (int) Math.min((long) from + limit, upperBound);
+    final ArrayList<BasicSuggestion> result = new ArrayList<>(Math.max(0, to - from));
+    for (int i = from; i < to; i++) {
+      result.add(get(i));
+    }
+    return result;
+  }
+
+  public int size() {
+    return displayEnds.length;
+  }
+
+  BasicSuggestion get(int index) {
+    final int start = offsets[index];
+    final int displayEnd = displayEnds[index];
+    final int end = offsets[index + 1];
+    final String toDisplay = new String(arena, start, displayEnd - start);
+    final String toInsert = displayEnd == end ? toDisplay : new String(arena, displayEnd, end - displayEnd);
+    return new BasicSuggestion(toDisplay, toInsert);
+  }
+
+  /**
+   * @return index of first suggestion not lower than prefix
+   */
+  private int lowerBound(CharSequence prefix) {
+    int low = 0;
+    int high = size();
+    while (low < high) {
+      final int middle = (low + high) >>> 1;
+      if (comparePrefix(middle, prefix) < 0) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * @return index of first suggestion greater than prefix and not starting with prefix
+   */
+  private int upperBound(CharSequence prefix, int from) {
+    int low = from;
+    int high = size();
+    while (low < high) {
+      final int middle = (low + high) >>> 1;
+      if (comparePrefix(middle, prefix) <= 0) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Compares beginning of display value of suggestion with prefix.
+   */
+  private int comparePrefix(int index, CharSequence prefix) {
+    final int start = offsets[index];
+    final int length = displayEnds[index] - start;
+    final int prefixLength = prefix.length();
+    final int limit = Math.min(length, prefixLength);
+    for (int i = 0; i < limit; i++) {
+      char c1 = arena[start + i];
+      char c2 = prefix.charAt(i);
+      if (c1 != c2) {
+        if (ignoreCase) {
+          c1 = Character.toLowerCase(Character.toUpperCase(c1));
+          c2 = Character.toLowerCase(Character.toUpperCase(c2));
+          if (c1 == c2) {
+            continue;
+          }
+        }
+        return c1 - c2;
+      }
+    }
+    return length >= prefixLength ? 0 : -1;
+  }
+}
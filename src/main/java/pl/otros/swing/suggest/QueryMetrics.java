@@ -0,0 +1,76 @@
+/*
+ * Copyright 2014 otros.systems@gmail.com
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package pl.otros.swing.suggest;
+
+/**
+ * Timings of single suggestion query.
+ */
+public class QueryMetrics {
+
+  private static final SuggestionStage[] STAGES = SuggestionStage.values();
+
+  private final SuggestionQuery query;
+  private final long[] durations = new long[STAGES.length];
+  private int resultCount;
+
+  QueryMetrics(SuggestionQuery query) {
+    this.query = query;
+  }
+
+  void add(SuggestionStage stage, long durationNanos) {
+    durations[stage.ordinal()] += durationNanos;
+  }
+
+  void setResultCount(int resultCount) {
+    this.resultCount = resultCount;
+  }
+
+  public SuggestionQuery getQuery() {
+    return query;
+  }
+
+  /**
+   * @return duration of stage in nanoseconds
+   */
+  public long getDuration(SuggestionStage stage) {
+    return durations[stage.ordinal()];
+  }
+
+  /**
+   * @return sum of durations of all stages in nanoseconds
+   */
+  public long getTotalDuration() {
+    long total = 0;
+    for (long duration : durations) {
+      total += duration;
+    }
+    return total;
+  }
+
+  public int getResultCount() {
+    return resultCount;
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder sb = new StringBuilder("QueryMetrics{");
+    for (SuggestionStage stage : STAGES) {
+      sb.append(stage).append('=').append(getDuration(stage)).append("ns, ");
+    }
+    return sb.append("resultCount=").append(resultCount).append('}').toString();
+  }
+}
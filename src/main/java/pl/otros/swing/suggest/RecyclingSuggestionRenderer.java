@@ -0,0 +1,46 @@
+/*
+ * Copyright 2014 otros.systems@gmail.com
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package pl.otros.swing.suggest;
+
+import javax.swing.*;
+
+/**
+ * Renderer reusing suggestion components. Popup creates components once and binds them to displayed suggestions,
+ * so displaying new suggestions do not allocate components or attach listeners.
+ *
+ * @param <T> Suggestion type
+ */
+public interface RecyclingSuggestionRenderer<T> extends SuggestionRenderer<T> {
+
+  /**
+   * @return new component, which will be bound to different suggestions
+   */
+  JComponent create();
+
+  /**
+   * Update component created by {@link #create()} to display suggestion
+   */
+  void bind(JComponent component, T suggestion);
+
+  @Override
+  default JComponent getSuggestionComponent(T suggestion) {
+    final JComponent component = create();
+    bind(component, suggestion);
+    return component;
+  }
+
+}
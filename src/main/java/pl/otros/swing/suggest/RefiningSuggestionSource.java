@@ -0,0 +1,116 @@
+/*
+ * Copyright 2014 otros.systems@gmail.com
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package pl.otros.swing.suggest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiPredicate;
+
+/**
+ * Suggestion source narrowing previous results instead of querying delegate source when user types next
+ * character of token before caret (see {@link SuggestionQuery#getTokenStart()}). Delegate source is queried only if
+ * text outside of token was changed, caret was moved, token was shortened (backspace) or previous results
+ * were truncated.
+ *
+ * @param <T> Suggestion type
+ */
+public class RefiningSuggestionSource<T> implements SuggestionSource<T> {
+
+  private final SuggestionSource<T> suggestionSource;
+  private final BiPredicate<T, String> matcher;
+  private final int truncatedSize;
+  private volatile Refinement<T> lastRefinement;
+
+  /**
+   * @param suggestionSource source of suggestions
+   * @param matcher checks if suggestion matches token before caret
+   */
+  public RefiningSuggestionSource(SuggestionSource<T> suggestionSource, BiPredicate<T, String> matcher) {
+    this(suggestionSource, matcher, Integer.MAX_VALUE);
+  }
+
+  /**
+   * @param suggestionSource source of suggestions
+   * @param matcher checks if suggestion matches token before caret
+   * @param truncatedSize number of suggestions returned by source when source truncates results. Truncated results are never narrowed.
+   */
+  public RefiningSuggestionSource(SuggestionSource<T> suggestionSource, BiPredicate<T, String> matcher, int truncatedSize) {
+    this.suggestionSource = suggestionSource;
+    this.matcher = matcher;
+    this.truncatedSize = truncatedSize;
+  }
+
+  @Override
+  public List<T> getSuggestions(SuggestionQuery query) {
+    final String value = query.getValue();
+    final int caretLocation = Math.min(query.getCaretLocation(), value.length());
+    final int tokenStart = Math.min(query.getTokenStart(), caretLocation);
+    final Refinement<T> last = lastRefinement;
+    final List<T> suggestions;
+    if (last != null && last.canBeRefinedTo(value, tokenStart, caretLocation)) {
+      final String token = value.substring(tokenStart, caretLocation);
+      suggestions = new ArrayList<>();
+      for (T suggestion : last.suggestions) {
+        if (matcher.test(suggestion, token)) {
+          suggestions.add(suggestion);
+        }
+      }
+    } else {
+      //all suggestions are needed to refine them, page is selected from refined suggestions
+      final boolean paged = query.getOffset() > 0 || query.getLimit() != SuggestionQuery.NO_LIMIT;
+      suggestions = suggestionSource.getSuggestions(paged ? query.page(0, SuggestionQuery.NO_LIMIT) : query);
+    }
+    lastRefinement = new Refinement<>(value, tokenStart, caretLocation, new ArrayList<>(suggestions), suggestions.size() >= truncatedSize);
+    return query.selectPage(suggestions);
+  }
+
+  /**
+   * Forget previous results, next query will be passed to delegate source.
+   */
+  public void reset() {
+    lastRefinement = null;
+  }
+
+  private static class Refinement<T> {
+    private final String value;
+    private final int tokenStart;
+    private final int caretLocation;
+    private final List<T> suggestions;
+    private final boolean truncated;
+
+    Refinement(String value, int tokenStart, int caretLocation, List<T> suggestions, boolean truncated) {
+      this.value = value;
+      this.tokenStart = tokenStart;
+      this.caretLocation = caretLocation;
+      this.suggestions = suggestions;
+      this.truncated = truncated;
+    }
+
+    /**
+     * Checks if only token before caret was extended since this refinement.
+     */
+    boolean canBeRefinedTo(String newValue, int newTokenStart, int newCaretLocation) {
+      final int suffixLength = value.length() - caretLocation;
+      return !truncated
+        && newTokenStart == tokenStart
+        && newCaretLocation >= caretLocation
+        && newValue.length() - newCaretLocation == suffixLength
+        && newValue.regionMatches(0, value, 0, caretLocation)
+        && newValue.regionMatches(newCaretLocation, value, caretLocation, suffixLength);
+    }
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2014 otros.systems@gmail.com
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package pl.otros.swing.suggest;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Result of replaying {@link KeystrokeTrace} by {@link KeystrokeTraceReplayer}
+ */
+public class ReplayReport {
+
+  private final int eventCount;
+  private final long sourceCalls;
+  private final LatencyRecorder latencies;
+  private final long replayNanos;
+
+  public ReplayReport(int eventCount, long sourceCalls, LatencyRecorder latencies, long replayNanos) {
+    this.eventCount = eventCount;
+    this.sourceCalls = sourceCalls;
+    this.latencies = latencies;
+    this.replayNanos = replayNanos;
+  }
+
+  /**
+   * @return percentile of time from last change of text to displayed suggestions, in nanoseconds
+   */
+  public long getTimeToSuggestions(double percentile) {
+    return latencies.getTotalPercentile(percentile);
+  }
+
+  /**
+   * @return timings of completed queries by stage
+   */
+  public LatencyRecorder getLatencies() {
+    return latencies;
+  }
+
+  public int getEventCount() {
+    return eventCount;
+  }
+
+  public long getSourceCalls() {
+    return sourceCalls;
+  }
+
+  /**
+   * @return number of queries which results were displayed (or hidden popup if source returned no suggestions)
+   */
+  public long getCompletedQueries() {
+    return latencies.getQueryCount();
+  }
+
+  /**
+   * @return number of queries cancelled by next keystroke before they completed
+   */
+  public long getCancelledQueries() {
+    return latencies.getCancelledCount();
+  }
+
+  /**
+   * @return number of source calls which results were not displayed
+   */
+  public long getWastedQueries() {
+    return Math.max(0, sourceCalls - getCompletedQueries());
+  }
+
+  /**
+   * @return real duration of replay
+   */
+  public long getReplayNanos() {
+    return replayNanos;
+  }
+
+  @Override
+  public String toString() {
+    return "ReplayReport{" +
+      "events=" + eventCount +
+      ", sourceCalls=" + sourceCalls +
+      ", completed=" + getCompletedQueries() +
+      ", cancelled=" + getCancelledQueries() +
+      ", wasted=" + getWastedQueries() +
+      ", timeToSuggestions[p50=" + millis(getTimeToSuggestions(50)) +
+      "ms, p99=" + millis(getTimeToSuggestions(99)) +
+      "ms], replayMillis=" + TimeUnit.NANOSECONDS.toMillis(replayNanos) +
+      '}';
+  }
+
+  private static double millis(long nanos) {
+    return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+  }
+}
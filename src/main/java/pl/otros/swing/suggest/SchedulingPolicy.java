@@ -0,0 +1,50 @@
+/*
+ * Copyright 2014 otros.systems@gmail.com
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package pl.otros.swing.suggest;
+
+/**
+ * Decides when suggestion source is queried after text or caret of decorated component is changed.
+ * Policy is notified about every change and about duration of every query, so it can adapt delay to typing cadence
+ * and cost of suggestion source. All methods are called on thread of {@link SuggestionEngine} (EDT for decorated
+ * components). Policy can be stateful, so single instance should not be shared between decorated components.
+ */
+public interface SchedulingPolicy {
+
+  /**
+   * @return delay in milliseconds between last change and querying suggestion source
+   */
+  int getDelay();
+
+  /**
+   * @return true if source should be queried immediately on first change after idle period longer than delay
+   * (leading edge), false if source is queried only when delay elapsed after last change (trailing edge)
+   */
+  boolean isLeadingEdge();
+
+  /**
+   * Called when text or caret is changed
+   * @param timeMillis time of change
+   */
+  void changed(long timeMillis);
+
+  /**
+   * Called when suggestion source finished query
+   * @param durationNanos duration of query
+   */
+  void queryCompleted(long durationNanos);
+
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2014 otros.systems@gmail.com
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package pl.otros.swing.suggest;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.FocusAdapter;
+import java.awt.event.FocusEvent;
+import java.lang.ref.WeakReference;
+
+/**
+ * Suggestion window shared by all decorated text components of top level window. Window is created when first
+ * suggestions are displayed and is kept as client property of root pane, so it is released together with top level
+ * window. Only one text component (owner) displays suggestions at time. Owner is weakly referenced and hidden
+ * window does not keep view of owner, so window does not keep closed text components.
+ */
+class SharedSuggestionWindow {
+
+  private final JWindow window;
+  private final JScrollPane scrollPane;
+  private WeakReference<SuggestionDocumentListener<?>> owner = new WeakReference<>(null);
+
+  private SharedSuggestionWindow(Window ancestor) {
+    window = new JWindow(ancestor);
+    scrollPane = new JScrollPane(null, ScrollPaneConstants.VERTICAL_SCROLLBAR_AS_NEEDED, ScrollPaneConstants.HORIZONTAL_SCROLLBAR_AS_NEEDED);
+    window.getContentPane().add(scrollPane);
+    scrollPane.getViewport().addChangeListener(e -> {
+      final SuggestionDocumentListener<?> listener = owner.get();
+      if (listener != null && window.isVisible()) {
+        listener.suggestionsScrolled();
+      }
+    });
+    window.addFocusListener(new FocusAdapter() {
+      @Override
+      public void focusLost(FocusEvent e) {
+        final SuggestionDocumentListener<?> listener = owner.get();
+        if (listener != null) {
+          listener.suggestionWindowFocusLost(e);
+        }
+      }
+    });
+    window.addComponentListener(new ComponentAdapter() {
+      @Override
+      public void componentHidden(ComponentEvent e) {
+        final SuggestionDocumentListener<?> listener = owner.get();
+        if (listener != null) {
+          listener.suggestionWindowHidden();
+        }
+        if (!window.isVisible()) {
+          //view references listener and its text component
+          owner.clear();
+          scrollPane.setViewportView(null);
+        }
+      }
+    });
+    ancestor.addComponentListener(new ComponentAdapter() {
+      @Override
+      public void componentResized(ComponentEvent e) {
+        ownerMoved();
+      }
+
+      @Override
+      public void componentMoved(ComponentEvent e) {
+        ownerMoved();
+      }
+    });
+  }
+
+  /**
+   * @return suggestion window of top level window, windows without root pane get not shared instance
+   */
+  static SharedSuggestionWindow forWindow(Window ancestor) {
+    if (!(ancestor instanceof RootPaneContainer)) {
+      return new SharedSuggestionWindow(ancestor);
+    }
+    final JRootPane rootPane = ((RootPaneContainer) ancestor).getRootPane();
+    Object shared = rootPane.getClientProperty(SharedSuggestionWindow.class);
+    if (!(shared instanceof SharedSuggestionWindow)) {
+      shared = new SharedSuggestionWindow(ancestor);
+      rootPane.putClientProperty(SharedSuggestionWindow.class, shared);
+    }
+    return (SharedSuggestionWindow) shared;
+  }
+
+  JWindow getWindow() {
+    return window;
+  }
+
+  /**
+   * Makes listener owner of window and displays its view. Previous owner is notified that window was hidden.
+   * @return true if view of window was changed
+   */
+  boolean acquire(SuggestionDocumentListener<?> listener, JComponent view) {
+    final SuggestionDocumentListener<?> previous = owner.get();
+    if (previous != listener && previous != null) {
+      previous.suggestionWindowHidden();
+    }
+    if (previous != listener) {
+      owner = new WeakReference<>(listener);
+    }
+    if (scrollPane.getViewport().getView() == view) {
+      return false;
+    }
+    scrollPane.setViewportView(view);
+    return true;
+  }
+
+  boolean isOwner(SuggestionDocumentListener<?> listener) {
+    return owner.get() == listener;
+  }
+
+  /**
+   * Hides window if listener is owner and removes view of listener from window
+   */
+  void release(SuggestionDocumentListener<?> listener, JComponent view) {
+    if (owner.get() == listener) {
+      window.setVisible(false);
+      owner.clear();
+      listener.suggestionWindowHidden();
+    }
+    if (view != null && scrollPane.getViewport().getView() == view) {
+      scrollPane.setViewportView(null);
+    }
+  }
+
+  private void ownerMoved() {
+    final SuggestionDocumentListener<?> listener = owner.get();
+    if (listener != null && window.isVisible()) {
+      listener.suggestionWindowMoved();
+    }
+  }
+}
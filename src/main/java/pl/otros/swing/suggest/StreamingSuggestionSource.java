@@ -0,0 +1,31 @@
+/*
+ * Copyright 2014 otros.systems@gmail.com
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package pl.otros.swing.suggest;
+
+/**
+ * Source of suggestions publishing results in chunks. First chunk is displayed as soon as it is published,
+ * next chunks are appended to displayed suggestions.
+ * <p>
+ * Source can publish chunks from any thread, also after this method returns. Query is finished when
+ * {@link SuggestionConsumer#complete()} is called.
+ * </p>
+ */
+public interface StreamingSuggestionSource<T> {
+
+  void getSuggestions(SuggestionQuery query, SuggestionConsumer<T> consumer);
+
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright 2014 otros.systems@gmail.com
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package pl.otros.swing.suggest;
+
+/**
+ * Handle of text component decorated by {@link SuggestDecorator}.
+ */
+public interface SuggestDecoration {
+
+  /**
+   * Remove suggestions from text component. All listeners added to text component are removed, pending query
+   * is cancelled. Calling it again has no effect.
+   */
+  void undecorate();
+
+}
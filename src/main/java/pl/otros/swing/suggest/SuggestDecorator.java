@@ -17,10 +17,10 @@
 package pl.otros.swing.suggest;
 
 import javax.swing.*;
-import javax.swing.text.Document;
 import javax.swing.text.JTextComponent;
 import java.awt.event.FocusAdapter;
 import java.awt.event.FocusEvent;
+import java.util.concurrent.Executor;
 
 public class SuggestDecorator {
 
@@ -31,12 +31,13 @@ public class SuggestDecorator {
    * @param suggestionRenderer renderer for suggestions
    * @param selectionListener suggestion listener to be executed after suggestion is selected
    * @param <T> Suggestion type
+   * @return handle removing suggestions from text component
    */
-  public static <T> void decorate(final JTextComponent textComponent,
+  public static <T> SuggestDecoration decorate(final JTextComponent textComponent,
                                   SuggestionSource<T> suggestionSource,
                                   SuggestionRenderer<T> suggestionRenderer,
                                   SelectionListener<T> selectionListener) {
-    decorate(textComponent, suggestionSource, suggestionRenderer, selectionListener, false);
+    return decorate(textComponent, suggestionSource, suggestionRenderer, selectionListener, false);
   }
 
 
@@ -48,18 +49,66 @@ public class SuggestDecorator {
    * @param selectionListener suggestion listener to be executed after suggestion is selected
    * @param clearFocusAfterSelection true if text selection should be removed and caret set to end of text after selecting suggestion
    * @param <T> Suggestion type
+   * @return handle removing suggestions from text component
    */
-  public static <T> void decorate(final JTextComponent textComponent,
+  public static <T> SuggestDecoration decorate(final JTextComponent textComponent,
                                   SuggestionSource<T> suggestionSource,
                                   SuggestionRenderer<T> suggestionRenderer,
                                   SelectionListener<T> selectionListener,
                                   boolean clearFocusAfterSelection) {
+    return decorate(textComponent, suggestionSource, suggestionRenderer, selectionListener, clearFocusAfterSelection, null);
+  }
+
+  /**
+   * Add popup with suggestion to text component. Suggestion source is queried using executor, so slow source
+   * do not block EDT. Results are displayed only if text and caret did not changed in meantime, queries replaced
+   * by newer one are cancelled (thread executing query is interrupted).
+   * @param textComponent  text component
+   * @param suggestionSource source of suggestions
+   * @param suggestionRenderer renderer for suggestions
+   * @param selectionListener suggestion listener to be executed after suggestion is selected
+   * @param clearFocusAfterSelection true if text selection should be removed and caret set to end of text after selecting suggestion
+   * @param executor executor used to query suggestion source, if null suggestion source is queried on EDT
+   * @param <T> Suggestion type
+   * @return handle removing suggestions from text component
+   */
+  public static <T> SuggestDecoration decorate(final JTextComponent textComponent,
+                                  SuggestionSource<T> suggestionSource,
+                                  SuggestionRenderer<T> suggestionRenderer,
+                                  SelectionListener<T> selectionListener,
+                                  boolean clearFocusAfterSelection,
+                                  Executor executor) {
+    return install(textComponent, new SuggestionDocumentListener<>(textComponent, suggestionSource, suggestionRenderer, selectionListener, executor),
+      clearFocusAfterSelection);
+  }
 
-    Document document = textComponent.getDocument();
-    SuggestionDocumentListener<? extends T> listener = new SuggestionDocumentListener<>(textComponent, suggestionSource, suggestionRenderer, selectionListener);
-    document.addDocumentListener(listener);
+  /**
+   * Add popup with suggestion to text component. Suggestions are published by source in chunks, first chunk
+   * is displayed immediately and next chunks are appended to popup.
+   * @param textComponent  text component
+   * @param suggestionSource streaming source of suggestions
+   * @param suggestionRenderer renderer for suggestions
+   * @param selectionListener suggestion listener to be executed after suggestion is selected
+   * @param clearFocusAfterSelection true if text selection should be removed and caret set to end of text after selecting suggestion
+   * @param executor executor used to query suggestion source, if null suggestion source is queried on EDT
+   * @param <T> Suggestion type
+   * @return handle removing suggestions from text component
+   */
+  public static <T> SuggestDecoration decorate(final JTextComponent textComponent,
+                                  StreamingSuggestionSource<T> suggestionSource,
+                                  SuggestionRenderer<T> suggestionRenderer,
+                                  SelectionListener<T> selectionListener,
+                                  boolean clearFocusAfterSelection,
+                                  Executor executor) {
+    return install(textComponent, new SuggestionDocumentListener<>(textComponent, suggestionSource, suggestionRenderer, selectionListener, executor),
+      clearFocusAfterSelection);
+  }
+
+  private static SuggestDecoration install(final JTextComponent textComponent, SuggestionDocumentListener<?> listener, boolean clearFocusAfterSelection) {
+    undecorate(textComponent);
+    listener.install();
     if (clearFocusAfterSelection) {
-      textComponent.addFocusListener(new FocusAdapter() {
+      listener.addTextFocusListener(new FocusAdapter() {
         @Override
         public void focusGained(FocusEvent e) {
           //do not select all on OSX after suggestion is selected
@@ -69,6 +118,101 @@ public class SuggestDecorator {
         }
       });
     }
+    return listener;
+  }
+
+  /**
+   * Remove suggestions from text component, see {@link SuggestDecoration#undecorate()}. Does nothing if text
+   * component is not decorated.
+   * @param textComponent text component
+   */
+  public static void undecorate(JTextComponent textComponent) {
+    final Object listener = textComponent.getClientProperty(SuggestionDocumentListener.class);
+    if (listener instanceof SuggestionDocumentListener) {
+      ((SuggestionDocumentListener<?>) listener).undecorate();
+    }
+  }
+
+  /**
+   * Switch popup of decorated text component to virtualized mode. In virtualized mode suggestions are displayed
+   * in list and only visible rows are rendered, {@link SuggestionRenderer} is used as rubber stamp. Use it for
+   * sources returning thousands of suggestions.
+   * @param textComponent decorated text component
+   * @param virtualized true to render only visible suggestions
+   */
+  public static void setVirtualizedPopup(JTextComponent textComponent, boolean virtualized) {
+    getListener(textComponent).setVirtualized(virtualized);
+  }
+
+  /**
+   * Set policy deciding when suggestion source is queried after text or caret is changed. By default source is
+   * queried 400ms after last change, see {@link AdaptiveSchedulingPolicy} for delay adapting to cost of source.
+   * @param textComponent decorated text component
+   * @param schedulingPolicy scheduling policy, not shared with other components
+   */
+  public static void setSchedulingPolicy(JTextComponent textComponent, SchedulingPolicy schedulingPolicy) {
+    getListener(textComponent).getEngine().setSchedulingPolicy(schedulingPolicy);
+  }
+
+  /**
+   * Set tokenizer tracking tokens of document of decorated component. Token at caret is passed to suggestion
+   * source in query, see {@link SuggestionQuery#getToken()}.
+   * @param textComponent decorated text component
+   * @param tokenizer tokenizer, not shared with other components
+   */
+  public static void setTokenizer(JTextComponent textComponent, IncrementalTokenizer tokenizer) {
+    getListener(textComponent).setTokenizer(tokenizer);
+  }
+
+  /**
+   * Set listener notified when suggestion is highlighted in popup (by keyboard or mouse), for example to prefetch
+   * data related to suggestion.
+   * @param textComponent decorated text component
+   * @param highlightListener listener, type of suggestion have to match suggestion source of decorated component
+   * @param <T> Suggestion type
+   */
+  public static <T> void setHighlightListener(JTextComponent textComponent, HighlightListener<T> highlightListener) {
+    SuggestDecorator.<T>getEngine(textComponent).setHighlightListener(highlightListener);
+  }
+
+  /**
+   * Request suggestions in pages, see {@link SuggestionQuery#getLimit()}. Next page is requested when suggestions are
+   * scrolled near to the bottom. By default all suggestions are requested in one query.
+   * @param textComponent decorated text component
+   * @param pageSize number of suggestions in page, 0 to disable paging
+   */
+  public static void setPageSize(JTextComponent textComponent, int pageSize) {
+    getListener(textComponent).getEngine().setPageSize(pageSize);
+  }
+
+  /**
+   * Set listener receiving timings of queries of decorated component, see {@link LatencyRecorder}.
+   * Timings are not measured if listener is not set.
+   * @param textComponent decorated text component
+   * @param metricsListener listener, null to disable measuring
+   */
+  public static void setMetricsListener(JTextComponent textComponent, SuggestionMetricsListener metricsListener) {
+    getListener(textComponent).getEngine().setMetricsListener(metricsListener);
+  }
+
+  /**
+   * Get engine of decorated text component, for example to read displayed suggestions and selected suggestion.
+   * Engine have to be used on EDT.
+   * @param textComponent decorated text component
+   * @param <T> Suggestion type, have to match suggestion source of decorated component
+   * @return engine querying suggestions for text component
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> SuggestionEngine<T> getEngine(JTextComponent textComponent) {
+    return ((SuggestionDocumentListener<T>) getListener(textComponent)).getEngine();
+  }
+
+  static SuggestionDocumentListener<?> getListener(JTextComponent textComponent) {
+    final Object listener = textComponent.getClientProperty(SuggestionDocumentListener.class);
+    if (!(listener instanceof SuggestionDocumentListener)) {
+      throw new IllegalArgumentException("Text component is not decorated with suggestions");
+    }
+    return (SuggestionDocumentListener<?>) listener;
   }
 
   static void clearTextFieldSelectionAsync(final JTextComponent textField) {
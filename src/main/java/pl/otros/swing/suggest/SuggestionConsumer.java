@@ -0,0 +1,42 @@
+/*
+ * Copyright 2014 otros.systems@gmail.com
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package pl.otros.swing.suggest;
+
+import java.util.List;
+
+/**
+ * Receives suggestions published by {@link StreamingSuggestionSource}.
+ */
+public interface SuggestionConsumer<T> {
+
+  /**
+   * Publish next chunk of suggestions
+   * @param suggestions suggestions to append
+   */
+  void accept(List<T> suggestions);
+
+  /**
+   * Signal that all suggestions are published
+   */
+  void complete();
+
+  /**
+   * @return true if query was replaced by newer one and source should stop publishing suggestions
+   */
+  boolean isCancelled();
+
+}
@@ -17,79 +17,93 @@
 package pl.otros.swing.suggest;
 
 import javax.swing.*;
-import javax.swing.FocusManager;
+import javax.swing.event.CaretListener;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
 import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
 import javax.swing.text.JTextComponent;
 import java.awt.*;
 import java.awt.event.*;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
 
-class SuggestionDocumentListener<T> implements DocumentListener {
+/**
+ * Swing view of {@link SuggestionEngine}. Listener notifies engine about changes of document and caret of text
+ * component and displays suggestions in window shared by text components of top level window.
+ */
+class SuggestionDocumentListener<T> implements DocumentListener, SuggestionView<T>, SuggestDecoration {
 
 
   private static final String FOCUS_TO_SUGGESTION = "Focus to suggestion";
   private static final String HIDE_SUGGESTION = "hide to suggestion";
-  private final JPanel suggestionPanel;
   private SuggestionRenderer<T> suggestionRenderer;
+  private SuggestionPopup<T> suggestionPopup;
   private JTextComponent textComponent;
-  private SuggestionSource<T> suggestionSource;
+  private final SuggestionEngine<T> engine;
+  private SharedSuggestionWindow sharedWindow;
   private JWindow suggestionWindow;
   private SelectionListener<T> selectionListener;
-  private JComponent[] suggestionComponents;
 
   private boolean fullyInitialized = false;
+  private boolean virtualized = false;
   private final ComponentAdapter windowsSizeListener;
   private final FocusAdapter hideSuggestionFocusAdapter;
-  private JScrollPane suggestionScrollPane;
-  private List<T> lastSuggestions = new ArrayList<>();
+  private final CaretListener caretListener = e -> caretMoved();
+  private final List<FocusListener> textFocusListeners = new ArrayList<>();
+  private Document document;
+  private boolean decorated = true;
   private final KeyStroke toSuggestionKeyStroke = KeyStroke.getKeyStroke(KeyEvent.VK_DOWN, 0);
   private final KeyStroke hideSuggestionKeyStroke = KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0);
-  private Optional<DelayedSwingInvoke> delayedInvoke = Optional.empty();
+  private Optional<IncrementalTokenizer> tokenizer = Optional.empty();
 
 
-  @SuppressWarnings("serial")
   public SuggestionDocumentListener(final JTextComponent textComponent, SuggestionSource<T> suggestionSource, SuggestionRenderer<T> suggestionRenderer,
                                     SelectionListener<T> selectionListener) {
+    this(textComponent, suggestionSource, suggestionRenderer, selectionListener, null);
+  }
+
+  /**
+   * @param executor executor used to query suggestion source, if null source is queried on EDT
+   */
+  public SuggestionDocumentListener(final JTextComponent textComponent, SuggestionSource<T> suggestionSource, SuggestionRenderer<T> suggestionRenderer,
+                                    SelectionListener<T> selectionListener, Executor executor) {
+    this(textComponent, suggestionRenderer, selectionListener, listener ->
+      new SuggestionEngine<>(listener.new TextComponentState(), suggestionSource, listener, new SwingSuggestionScheduler(), executor));
+  }
+
+  /**
+   * @param executor executor used to query suggestion source, if null source is queried on EDT
+   */
+  public SuggestionDocumentListener(final JTextComponent textComponent, StreamingSuggestionSource<T> suggestionSource, SuggestionRenderer<T> suggestionRenderer,
+                                    SelectionListener<T> selectionListener, Executor executor) {
+    this(textComponent, suggestionRenderer, selectionListener, listener ->
+      new SuggestionEngine<>(listener.new TextComponentState(), suggestionSource, listener, new SwingSuggestionScheduler(), executor));
+  }
+
+  private SuggestionDocumentListener(final JTextComponent textComponent, SuggestionRenderer<T> suggestionRenderer,
+                                     SelectionListener<T> selectionListener, Function<SuggestionDocumentListener<T>, SuggestionEngine<T>> engineFactory) {
     this.textComponent = textComponent;
-    this.suggestionSource = suggestionSource;
     this.suggestionRenderer = suggestionRenderer;
     this.selectionListener = selectionListener;
+    this.engine = engineFactory.apply(this);
 
     windowsSizeListener = new ComponentAdapter() {
 
       @Override
       public void componentResized(ComponentEvent e) {
-        setSuggestionWindowLocation();
+        suggestionWindowMoved();
       }
 
       @Override
       public void componentMoved(ComponentEvent e) {
-        setSuggestionWindowLocation();
+        suggestionWindowMoved();
       }
 
     };
-    suggestionPanel = new JPanel();
-
-    AbstractAction focusToSuggestionAction = new AbstractAction() {
-
-      @Override
-      public void actionPerformed(ActionEvent e) {
-        if (suggestionComponents != null && suggestionComponents.length > 0) {
-          suggestionComponents[0].requestFocus();
-        }
-      }
-    };
-    textComponent.getActionMap().put(FOCUS_TO_SUGGESTION, focusToSuggestionAction);
-    textComponent.getActionMap().put(HIDE_SUGGESTION, new AbstractAction() {
-      @Override
-      public void actionPerformed(ActionEvent e) {
-        hideSuggestions();
-      }
-    });
 
     hideSuggestionFocusAdapter = new FocusAdapter() {
 
@@ -97,208 +111,281 @@ class SuggestionDocumentListener<T> implements DocumentListener {
       public void focusLost(FocusEvent e) {
         Component oppositeComponent = e.getOppositeComponent();
         boolean focusOwner = textComponent.isFocusOwner();
-        if (!focusOwner && !(oppositeComponent != null && oppositeComponent.getParent() == suggestionPanel)) {
-          hideSuggestions();
+        if (!focusOwner && (suggestionPopup == null || !suggestionPopup.isPopupComponent(oppositeComponent))) {
+          engine.hideSuggestions();
         }
       }
 
     };
-    textComponent.addFocusListener(hideSuggestionFocusAdapter);
-    textComponent.addCaretListener(e -> submitMakeSuggestions());
   }
 
 
   private void lazyInit() {
     Window windowAncestor = SwingUtilities.getWindowAncestor(textComponent);
-    suggestionWindow = new JWindow(windowAncestor);
-    windowAncestor.addComponentListener(windowsSizeListener);
+    sharedWindow = SharedSuggestionWindow.forWindow(windowAncestor);
+    suggestionWindow = sharedWindow.getWindow();
+    suggestionPopup = createPopup();
     textComponent.addComponentListener(windowsSizeListener);
-    suggestionScrollPane = new JScrollPane(suggestionPanel, ScrollPaneConstants.VERTICAL_SCROLLBAR_AS_NEEDED, ScrollPaneConstants.HORIZONTAL_SCROLLBAR_AS_NEEDED);
-    suggestionWindow.getContentPane().add(suggestionScrollPane);
-    suggestionWindow.addFocusListener(hideSuggestionFocusAdapter);
     fullyInitialized = true;
+  }
+
+  private SuggestionPopup<T> createPopup() {
+    return virtualized
+      ? new ListSuggestionPopup<>(this, suggestionRenderer)
+      : new ComponentSuggestionPopup<>(this, suggestionRenderer);
+  }
+
+  /**
+   * Registers listener in document and text component
+   */
+  @SuppressWarnings("serial")
+  void install() {
+    AbstractAction focusToSuggestionAction = new AbstractAction() {
 
-    InputMap inputMap = textComponent.getInputMap();
-    suggestionWindow.addComponentListener(new ComponentAdapter() {
       @Override
-      public void componentHidden(ComponentEvent e) {
-        inputMap.remove(toSuggestionKeyStroke);
-        inputMap.remove(hideSuggestionKeyStroke);
+      public void actionPerformed(ActionEvent e) {
+        if (suggestionPopup != null) {
+          suggestionPopup.focusFirstSuggestion();
+        }
       }
-
+    };
+    textComponent.getActionMap().put(FOCUS_TO_SUGGESTION, focusToSuggestionAction);
+    textComponent.getActionMap().put(HIDE_SUGGESTION, new AbstractAction() {
       @Override
-      public void componentShown(ComponentEvent e) {
-        inputMap.put(toSuggestionKeyStroke, FOCUS_TO_SUGGESTION);
-        inputMap.put(hideSuggestionKeyStroke, HIDE_SUGGESTION);
+      public void actionPerformed(ActionEvent e) {
+        engine.hideSuggestions();
       }
     });
+    textComponent.addFocusListener(hideSuggestionFocusAdapter);
+    textComponent.addCaretListener(caretListener);
+    document = textComponent.getDocument();
+    document.addDocumentListener(this);
+    textComponent.putClientProperty(SuggestionDocumentListener.class, this);
+  }
+
+  /**
+   * Adds focus listener to text component, listener is removed when component is undecorated
+   */
+  void addTextFocusListener(FocusListener focusListener) {
+    textFocusListeners.add(focusListener);
+    textComponent.addFocusListener(focusListener);
+  }
+
+  @Override
+  public void undecorate() {
+    if (!decorated) {
+      return;
+    }
+    decorated = false;
+    engine.dispose();
+    if (sharedWindow != null) {
+      sharedWindow.release(this, suggestionPopup.getView());
+    }
+    if (document != null) {
+      document.removeDocumentListener(this);
+      document = null;
+    }
+    textComponent.removeCaretListener(caretListener);
+    textComponent.removeFocusListener(hideSuggestionFocusAdapter);
+    textFocusListeners.forEach(textComponent::removeFocusListener);
+    textFocusListeners.clear();
+    textComponent.removeComponentListener(windowsSizeListener);
+    textComponent.getActionMap().remove(FOCUS_TO_SUGGESTION);
+    textComponent.getActionMap().remove(HIDE_SUGGESTION);
+    suggestionWindowHidden();
+    if (textComponent.getClientProperty(SuggestionDocumentListener.class) == this) {
+      textComponent.putClientProperty(SuggestionDocumentListener.class, null);
+    }
+  }
+
+  /**
+   * Switch between virtualized popup rendering only visible suggestions and popup creating component for every suggestion.
+   */
+  void setVirtualized(boolean virtualized) {
+    if (this.virtualized == virtualized) {
+      return;
+    }
+    this.virtualized = virtualized;
+    if (suggestionPopup == null) {
+      return;
+    }
+    engine.hideSuggestions();
+    sharedWindow.release(this, suggestionPopup.getView());
+    suggestionPopup = createPopup();
+  }
+
+  /**
+   * Set tokenizer providing token at caret for queries. Tokenizer is updated by document events.
+   */
+  void setTokenizer(IncrementalTokenizer tokenizer) {
+    tokenizer.reset(textComponent.getDocument());
+    this.tokenizer = Optional.of(tokenizer);
+  }
+
+  SuggestionEngine<T> getEngine() {
+    return engine;
   }
 
   @Override
   public void insertUpdate(DocumentEvent e) {
-    submitMakeSuggestions();
+    tokenizer.ifPresent(t -> t.insertUpdate(e));
+    engine.textChanged();
   }
 
   @Override
   public void removeUpdate(DocumentEvent e) {
-    submitMakeSuggestions();
+    tokenizer.ifPresent(t -> t.removeUpdate(e));
+    engine.textChanged();
   }
 
   @Override
   public void changedUpdate(DocumentEvent e) {
-    submitMakeSuggestions();
+    engine.textChanged();
   }
 
-
-  void submitMakeSuggestions(){
-    hideSuggestions();
-    delayedInvoke.ifPresent(DelayedSwingInvoke::stop);
-    final DelayedSwingInvoke delayedSwingInvoke = new DelayedSwingInvoke(400) {
-
-      @Override
-      protected void performActionHook() {
-        makeSuggestions();
-      }
-    };
-    delayedSwingInvoke.performAction();
-    delayedInvoke = Optional.of(delayedSwingInvoke);
-
+  private void caretMoved() {
+    engine.caretMoved();
   }
 
-  void makeSuggestions() {
-    if (SwingUtilities.getWindowAncestor(textComponent) == null) {
-      return;
+  @Override
+  public boolean isAvailable() {
+    if (!decorated || SwingUtilities.getWindowAncestor(textComponent) == null) {
+      return false;
     }
     if (!fullyInitialized) {
       lazyInit();
     }
-    final String text = textComponent.getText().replaceAll("\r\n", "\n");
-    final int caretPosition = textComponent.getCaretPosition();
-    final int selectionEnd = textComponent.getSelectionEnd();
-    final int selectionStart = textComponent.getSelectionStart();
-    final SuggestionQuery query = new SuggestionQuery(text, caretPosition, selectionStart, selectionEnd);
-    List<T> suggestions = suggestionSource.getSuggestions(query);
-    int suggestionsSize = suggestions.size();
-    final ArrayList<T> diffSuggestions = new ArrayList<>(suggestions);
-    lastSuggestions.stream().forEach(diffSuggestions::remove);
-    if (diffSuggestions.isEmpty() && suggestions.size() == lastSuggestions.size()) {
-      if (suggestionWindow.isVisible()){
-        setSuggestionWindowLocation();
-        return;
-      }
-    }
-    lastSuggestions = new ArrayList<>();
-    if (suggestionsSize == 0) {
-      suggestionWindow.setVisible(false);
-    } else {
-      suggestionPanel.removeAll();
-      suggestionPanel.revalidate();
-      suggestionPanel.setLayout(new GridLayout(suggestionsSize, 1));
-      suggestionComponents = new JComponent[suggestionsSize];
-      int index = 0;
-      for (final T suggestion : suggestions) {
-        final boolean first = index == 0;
-        final boolean last = index == suggestionsSize - 1;
-        final JComponent suggestionComponent = suggestionRenderer.getSuggestionComponent(suggestion);
-        suggestionComponents[index++] = suggestionComponent;
-        suggestionComponent.setFocusable(true);
-        suggestionComponent.setOpaque(true);
-        suggestionComponent.setBorder(BorderFactory.createLineBorder(suggestionPanel.getBackground()));
-        suggestionComponent.addKeyListener(new KeyAdapter() {
-          @Override
-          public void keyPressed(KeyEvent e) {
-            final int keyCode = e.getKeyCode();
-            if (keyCode == KeyEvent.VK_UP && first) {
-              textComponent.requestFocus();
-              SuggestDecorator.clearTextFieldSelectionAsync(textComponent);
-            } else if (keyCode == KeyEvent.VK_UP) {
-              FocusManager.getCurrentManager().focusPreviousComponent();
-            } else if (keyCode == KeyEvent.VK_DOWN && !last) {
-              FocusManager.getCurrentManager().focusNextComponent();
-            } else if (keyCode == KeyEvent.VK_ENTER) {
-              suggestionSelected(suggestion, query);
-            } else if (keyCode == KeyEvent.VK_ESCAPE) {
-              textComponent.requestFocusInWindow();
-              hideSuggestions();
-            }
-          }
-
-          @Override
-          public void keyTyped(KeyEvent e) {
-            textComponent.dispatchEvent(e);
-            textComponent.requestFocus();
-          }
-        });
-        suggestionComponent.addFocusListener(new FocusListener() {
-          @Override
-          public void focusGained(final FocusEvent e) {
-            highlightSuggestion(suggestionComponent);
-            SwingUtilities.invokeLater(() -> {
-              final Component component = e.getComponent();
-              suggestionScrollPane.scrollRectToVisible(component.getBounds());
-            });
-
-          }
-
-          @Override
-          public void focusLost(FocusEvent e) {
-            removeHighlightSuggestion(suggestionComponent);
-          }
-        });
-        suggestionComponent.addMouseListener(new MouseAdapter() {
-
-          @Override
-          public void mouseClicked(MouseEvent e) {
-            suggestionSelected(suggestion, query);
-          }
-
-          @Override
-          public void mouseEntered(MouseEvent e) {
-            highlightSuggestion(suggestionComponent);
-          }
-
-          @Override
-          public void mouseExited(MouseEvent e) {
-            removeHighlightSuggestion(suggestionComponent);
-          }
-
-        });
-        suggestionPanel.add(suggestionComponent);
-      }
-
-      lastSuggestions = suggestions;
+    return true;
+  }
 
+  @Override
+  public void showSuggestions(List<T> suggestions, SuggestionQuery query, QueryMetrics metrics) {
+    long start = startTime(metrics);
+    final boolean viewChanged = sharedWindow.acquire(this, suggestionPopup.getView());
+    final boolean changed = suggestionPopup.setSuggestions(suggestions, query) || viewChanged;
+    start = record(metrics, SuggestionStage.RENDER, start);
+    if (changed || !suggestionWindow.isDisplayable()) {
       suggestionWindow.pack();
+    }
+    start = record(metrics, SuggestionStage.PACK, start);
+    setSuggestionWindowLocation();
+    record(metrics, SuggestionStage.LOCATION, start);
+    if (!suggestionWindow.isVisible()) {
+      suggestionWindow.setFocusableWindowState(false);
+      suggestionWindow.setVisible(true);
+      suggestionWindow.setFocusableWindowState(true);
+    }
+    final InputMap inputMap = textComponent.getInputMap();
+    inputMap.put(toSuggestionKeyStroke, FOCUS_TO_SUGGESTION);
+    inputMap.put(hideSuggestionKeyStroke, HIDE_SUGGESTION);
+  }
+
+  @Override
+  public void appendSuggestions(List<T> suggestions, QueryMetrics metrics) {
+    long start = startTime(metrics);
+    suggestionPopup.appendSuggestions(suggestions);
+    start = record(metrics, SuggestionStage.RENDER, start);
+    if (isShowingSuggestions()) {
       setSuggestionWindowLocation();
-      if (!suggestionWindow.isVisible()) {
-        suggestionWindow.setFocusableWindowState(false);
-        suggestionWindow.setVisible(true);
-        suggestionWindow.setFocusableWindowState(true);
-      }
     }
+    record(metrics, SuggestionStage.LOCATION, start);
+  }
+
+  @Override
+  public void nextPageAvailable() {
+    suggestionsScrolled();
   }
 
+  /**
+   * Called when suggestions view is scrolled or resized, next page is loaded when less than half of visible height
+   * is left below visible suggestions.
+   */
+  void suggestionsScrolled() {
+    if (engine.hasNextPage() && isNearBottom()) {
+      engine.requestNextPage();
+    }
+  }
 
-  private void removeHighlightSuggestion(JComponent suggestionComponent) {
-    suggestionComponent.setBorder(BorderFactory.createLineBorder(suggestionPanel.getBackground()));
+  private boolean isNearBottom() {
+    final JComponent view = suggestionPopup.getView();
+    final Rectangle visible = view.getVisibleRect();
+    return visible.y + visible.height * 3 / 2 >= view.getHeight();
   }
 
+  private static long startTime(QueryMetrics metrics) {
+    return metrics != null ? System.nanoTime() : 0;
+  }
 
-  private void highlightSuggestion(JComponent suggestion) {
-    for (JComponent toClearHighlight : suggestionComponents) {
-      removeHighlightSuggestion(toClearHighlight);
+  /**
+   * Adds time elapsed since start to stage
+   * @return current time, start of next stage
+   */
+  private static long record(QueryMetrics metrics, SuggestionStage stage, long start) {
+    if (metrics == null) {
+      return 0;
     }
-    suggestion.setBorder(BorderFactory.createLineBorder(suggestion.getForeground()));
-    suggestionScrollPane.scrollRectToVisible(suggestion.getBounds());
+    final long now = System.nanoTime();
+    metrics.add(stage, now - start);
+    return now;
   }
 
-
-  protected void hideSuggestions() {
-    if (suggestionWindow != null) {
+  @Override
+  public void hideSuggestions() {
+    if (isShowingSuggestions()) {
       suggestionWindow.setVisible(false);
     }
   }
 
+  /**
+   * @return true if shared suggestion window is visible and displays suggestions of this text component
+   */
+  @Override
+  public boolean isShowingSuggestions() {
+    return sharedWindow != null && sharedWindow.isOwner(this) && suggestionWindow.isVisible();
+  }
+
+  /**
+   * Called when shared suggestion window was hidden or is used by other text component
+   */
+  void suggestionWindowHidden() {
+    final InputMap inputMap = textComponent.getInputMap();
+    inputMap.remove(toSuggestionKeyStroke);
+    inputMap.remove(hideSuggestionKeyStroke);
+  }
+
+  void suggestionWindowMoved() {
+    if (isShowingSuggestions()) {
+      setSuggestionWindowLocation();
+    }
+  }
+
+  void suggestionWindowFocusLost(FocusEvent e) {
+    hideSuggestionFocusAdapter.focusLost(e);
+  }
+
+  /**
+   * Called by popup when suggestion is highlighted by keyboard or mouse
+   */
+  void suggestionHighlighted(int index) {
+    engine.select(index);
+  }
+
+  void cancelSuggestions() {
+    textComponent.requestFocusInWindow();
+    engine.hideSuggestions();
+  }
+
+  void returnFocusToText() {
+    engine.select(-1);
+    textComponent.requestFocus();
+    SuggestDecorator.clearTextFieldSelectionAsync(textComponent);
+  }
+
+  void forwardKeyTyped(KeyEvent e) {
+    textComponent.dispatchEvent(e);
+    textComponent.requestFocus();
+  }
+
   protected void suggestionSelected(T suggestion, SuggestionQuery query) {
     final SuggestionResult<T> result = new SuggestionResult<>(suggestion, query, textComponent);
     selectionListener.selected(result);
@@ -307,16 +394,18 @@ class SuggestionDocumentListener<T> implements DocumentListener {
 
   private void setSuggestionWindowLocation() {
     if (textComponent.isShowing()){
-      suggestionWindow.pack();
+      //preferred size is cached until rows are changed
+      final Dimension preferredSize = suggestionWindow.getPreferredSize();
       if (textComponent instanceof JTextField) {
-        int width = Math.max(textComponent.getWidth(), suggestionWindow.getWidth());
-        suggestionWindow.setSize(width, (int) Math.min(suggestionWindow.getHeight(), Toolkit.getDefaultToolkit().getScreenSize().getHeight() / 2));
+        int width = Math.max(textComponent.getWidth(), preferredSize.width);
+        suggestionWindow.setSize(width, (int) Math.min(preferredSize.height, Toolkit.getDefaultToolkit().getScreenSize().getHeight() / 2));
         int x = (int) textComponent.getLocationOnScreen().getX();
         int y = (int) (textComponent.getLocationOnScreen().getY() + textComponent.getHeight());
         suggestionWindow.setLocation(x, y);
       } else {
+        suggestionWindow.setSize(preferredSize.width, (int) Math.min(preferredSize.height, Toolkit.getDefaultToolkit().getScreenSize().getHeight() / 2));
         try {
-          final int caretPosition = Math.min(textComponent.getText().length(), textComponent.getCaretPosition());
+          final int caretPosition = Math.min(textComponent.getDocument().getLength(), textComponent.getCaretPosition());
           final Rectangle rectangle = textComponent.modelToView(caretPosition);
           final Point p = new Point(rectangle.x, rectangle.y + rectangle.height);
           SwingUtilities.convertPointToScreen(p, textComponent);
@@ -325,38 +414,48 @@ class SuggestionDocumentListener<T> implements DocumentListener {
           e.printStackTrace();
         }
       }
+      suggestionWindow.validate();
     }
   }
 
+  /**
+   * Text, caret and token at caret of text component
+   */
+  private class TextComponentState implements TextState {
 
-  private abstract class DelayedSwingInvoke {
-
-    protected long lastTextFieldEditTime = 0;
-    protected int actionDelay = 1000;
-    private Optional<Timer> timer = Optional.empty();
-
-    public DelayedSwingInvoke(int actionDelay) {
-      this.actionDelay = actionDelay;
+    @Override
+    public CharSequence getText() {
+      return new DocumentCharSequence(textComponent.getDocument());
     }
 
-    public void performAction() {
-      lastTextFieldEditTime = System.currentTimeMillis();
-      Timer timer = new Timer(actionDelay, e -> {
-        if (System.currentTimeMillis() - lastTextFieldEditTime >= actionDelay) {
-          performActionHook();
-        }
-      });
-      timer.setRepeats(false);
-      timer.start();
-      this.timer = Optional.of(timer);
+    @Override
+    public int getCaretPosition() {
+      return textComponent.getCaretPosition();
     }
 
-    public void stop(){
-      timer.ifPresent(Timer::stop);
+    @Override
+    public int getSelectionStart() {
+      return textComponent.getSelectionStart();
     }
 
-    protected abstract void performActionHook();
+    @Override
+    public int getSelectionEnd() {
+      return textComponent.getSelectionEnd();
+    }
 
+    @Override
+    public SuggestionQuery createQuery() {
+      final CharSequence text = getText();
+      final int caretPosition = getCaretPosition();
+      if (tokenizer.isPresent()) {
+        final IncrementalTokenizer t = tokenizer.get();
+        final int index = t.findToken(caretPosition);
+        final int tokenStart = index >= 0 ? t.getTokenStart(index) : caretPosition;
+        final int tokenEnd = index >= 0 ? t.getTokenEnd(index) : caretPosition;
+        return new SuggestionQuery(text, caretPosition, getSelectionStart(), getSelectionEnd(), tokenStart, tokenEnd);
+      }
+      return new SuggestionQuery(text, caretPosition, getSelectionStart(), getSelectionEnd());
+    }
   }
 
 }
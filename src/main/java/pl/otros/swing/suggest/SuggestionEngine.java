@@ -0,0 +1,615 @@
+/*
+ * Copyright 2014 otros.systems@gmail.com
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package pl.otros.swing.suggest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Suggestion pipeline independent of UI toolkit. Engine is notified about changes of {@link TextState}, decides
+ * when suggestion source is queried using {@link SchedulingPolicy}, cancels outdated queries, loads pages of
+ * suggestions and publishes results to {@link SuggestionView}. Engine keeps displayed suggestions with selected one.
+ * <p>
+ * Engine is not thread safe, all methods have to be called on thread of {@link SuggestionScheduler} (EDT for Swing).
+ * With scheduler using virtual clock engine can be driven without UI, for example to replay recorded keystrokes.
+ * </p>
+ */
+public class SuggestionEngine<T> {
+
+  private final TextState textState;
+  private final SuggestionSource<T> suggestionSource;
+  private final StreamingSuggestionSource<T> streamingSuggestionSource;
+  private final SuggestionView<T> view;
+  private final SuggestionScheduler scheduler;
+  private final Executor executor;
+  private final SuggestionScheduler.DelayedTask debounceTask;
+  private SchedulingPolicy schedulingPolicy = new FixedDelaySchedulingPolicy();
+  private boolean changed = false;
+  private long lastChangeNanos = 0;
+  private boolean trailingQueryPending = false;
+  private boolean disposed = false;
+  private Optional<QueryTask<?>> pendingQuery = Optional.empty();
+  private long textVersion = 0;
+  private Optional<SuggestionQuery> lastQuery = Optional.empty();
+  private long lastQueryTextVersion = -1;
+  private long leadingQueryTextVersion = -1;
+  private int pageSize = 0;
+  private Optional<SuggestionQuery> nextPage = Optional.empty();
+  private boolean nextPageRequested = false;
+  private List<T> suggestions = new ArrayList<>();
+  private Optional<SuggestionQuery> displayedQuery = Optional.empty();
+  private int selectedIndex = -1;
+  private Optional<HighlightListener<T>> highlightListener = Optional.empty();
+  private Optional<SuggestionMetricsListener> metricsListener = Optional.empty();
+
+  /**
+   * @param executor executor used to query suggestion source, if null source is queried on thread of engine
+   */
+  public SuggestionEngine(TextState textState, SuggestionSource<T> suggestionSource, SuggestionView<T> view,
+                          SuggestionScheduler scheduler, Executor executor) {
+    this(textState, suggestionSource, null, view, scheduler, executor);
+  }
+
+  /**
+   * @param executor executor used to query suggestion source, if null source is queried on thread of engine
+   */
+  public SuggestionEngine(TextState textState, StreamingSuggestionSource<T> suggestionSource, SuggestionView<T> view,
+                          SuggestionScheduler scheduler, Executor executor) {
+    this(textState, null, suggestionSource, view, scheduler, executor);
+  }
+
+  private SuggestionEngine(TextState textState, SuggestionSource<T> suggestionSource,
+                           StreamingSuggestionSource<T> streamingSuggestionSource, SuggestionView<T> view,
+                           SuggestionScheduler scheduler, Executor executor) {
+    this.textState = textState;
+    this.suggestionSource = suggestionSource;
+    this.streamingSuggestionSource = streamingSuggestionSource;
+    this.view = view;
+    this.scheduler = scheduler;
+    this.executor = executor;
+    debounceTask = scheduler.createDelayedTask(() -> {
+      if (trailingQueryPending) {
+        trailingQueryPending = false;
+        makeSuggestions();
+      }
+    });
+  }
+
+  public void setSchedulingPolicy(SchedulingPolicy schedulingPolicy) {
+    this.schedulingPolicy = schedulingPolicy;
+  }
+
+  /**
+   * @param pageSize number of suggestions requested from source in one query, 0 to request all suggestions
+   */
+  public void setPageSize(int pageSize) {
+    this.pageSize = Math.max(0, pageSize);
+  }
+
+  public void setMetricsListener(SuggestionMetricsListener metricsListener) {
+    this.metricsListener = Optional.ofNullable(metricsListener);
+  }
+
+  public void setHighlightListener(HighlightListener<T> highlightListener) {
+    this.highlightListener = Optional.ofNullable(highlightListener);
+  }
+
+  /**
+   * Notifies engine that text was edited. Displayed suggestions are hidden and source is queried according to
+   * scheduling policy.
+   */
+  public void textChanged() {
+    textVersion++;
+    submitQuery();
+  }
+
+  /**
+   * Notifies engine that caret or selection was moved. Suggestions are queried again only if caret was moved out of
+   * token used in last query or selection was changed. Otherwise displayed suggestions are kept.
+   */
+  public void caretMoved() {
+    if (leadingQueryTextVersion == textVersion) {
+      //caret update of the same edit, scheduled leading query will read current caret
+      return;
+    }
+    if (!lastQuery.isPresent() || lastQueryTextVersion != textVersion) {
+      submitQuery();
+      return;
+    }
+    final SuggestionQuery query = textState.createQuery();
+    if (!isSameContext(lastQuery.get(), query)) {
+      submitQuery();
+    } else if (view.isShowingSuggestions()) {
+      displayedQuery = Optional.of(query);
+      view.showSuggestions(suggestions, query, null);
+    }
+  }
+
+  private void submitQuery() {
+    hideSuggestions();
+    cancelPendingQuery();
+    final long now = scheduler.nanoTime();
+    final int delay = schedulingPolicy.getDelay();
+    final boolean idle = !debounceTask.isPending() && (!changed || now - lastChangeNanos >= TimeUnit.MILLISECONDS.toNanos(delay));
+    changed = true;
+    lastChangeNanos = now;
+    schedulingPolicy.changed(TimeUnit.NANOSECONDS.toMillis(now));
+    if (schedulingPolicy.isLeadingEdge() && idle) {
+      //caret of Swing component is updated after document listeners are notified
+      leadingQueryTextVersion = textVersion;
+      scheduler.execute(this::makeSuggestions);
+      trailingQueryPending = false;
+    } else {
+      trailingQueryPending = true;
+    }
+    debounceTask.restart(delay);
+  }
+
+  /**
+   * Checks if queries have the same token span and selection, caret location inside token is not compared
+   */
+  static boolean isSameContext(SuggestionQuery query, SuggestionQuery other) {
+    final boolean noSelection = query.getSelectionStart() == query.getSelectionEnd()
+      && other.getSelectionStart() == other.getSelectionEnd();
+    return query.getTokenStart() == other.getTokenStart()
+      && query.getTokenEnd() == other.getTokenEnd()
+      && (noSelection || query.getSelectionStart() == other.getSelectionStart()
+      && query.getSelectionEnd() == other.getSelectionEnd());
+  }
+
+  /**
+   * Compares suggestions element by element in linear time. Reordered suggestions are displayed again.
+   * Package-private for DiffBenchmark.
+   */
+  static <T> boolean isSameSuggestions(List<T> lastSuggestions, List<T> suggestions) {
+    return lastSuggestions.size() == suggestions.size() && lastSuggestions.equals(suggestions);
+  }
+
+  private void makeSuggestions() {
+    leadingQueryTextVersion = -1;
+    if (disposed || !view.isAvailable()) {
+      return;
+    }
+    final SuggestionQuery currentQuery = textState.createQuery();
+    lastQuery = Optional.of(currentQuery);
+    lastQueryTextVersion = textVersion;
+    nextPage = Optional.empty();
+    nextPageRequested = false;
+    final SuggestionQuery query = pageSize > 0 ? currentQuery.page(0, pageSize) : currentQuery;
+    final QueryMetrics metrics = metricsListener.isPresent() ? new QueryMetrics(query) : null;
+    if (metrics != null) {
+      metrics.add(SuggestionStage.DEBOUNCE, scheduler.nanoTime() - lastChangeNanos);
+    }
+    runQuery(query, false, metrics);
+  }
+
+  /**
+   * Query source on thread of engine or using executor
+   * @param append true if suggestions are next page of displayed suggestions
+   */
+  private void runQuery(SuggestionQuery query, boolean append, QueryMetrics metrics) {
+    if (executor == null && streamingSuggestionSource == null) {
+      final long start = scheduler.nanoTime();
+      final List<T> result = suggestionSource.getSuggestions(query);
+      final long duration = scheduler.nanoTime() - start;
+      schedulingPolicy.queryCompleted(duration);
+      if (metrics != null) {
+        metrics.add(SuggestionStage.SOURCE, duration);
+      }
+      if (append) {
+        appendPage(query, result, metrics);
+      } else {
+        showSuggestions(query, result, metrics);
+      }
+      return;
+    }
+    cancelPendingQuery();
+    //text view (for example of Swing document) can't be read by executor while text is edited
+    final SuggestionQuery snapshot = executor != null ? query.snapshot() : query;
+    final QueryTask<?> task = streamingSuggestionSource != null
+      ? new StreamingQueryTask(snapshot, textVersion, metrics, append)
+      : new ListQueryTask(snapshot, textVersion, metrics, append);
+    pendingQuery = Optional.of(task);
+    if (executor != null) {
+      executor.execute(task);
+    } else {
+      task.run();
+    }
+  }
+
+  private void cancelPendingQuery() {
+    pendingQuery.ifPresent(task -> {
+      task.cancel(true);
+      metricsListener.ifPresent(l -> l.queryCancelled(task.query));
+    });
+    pendingQuery = Optional.empty();
+  }
+
+  /**
+   * Checks if query was created for current state of text. Caret could be moved inside token.
+   */
+  private boolean isCurrent(QueryTask<?> task) {
+    return pendingQuery.orElse(null) == task
+      && task.textVersion == textVersion
+      && isSameContext(task.query, textState.createQuery());
+  }
+
+  /**
+   * @return query with current caret location if caret was moved inside token while query was executed
+   */
+  private SuggestionQuery updateCaret(SuggestionQuery query) {
+    return query.getCaretLocation() == textState.getCaretPosition() ? query : textState.createQuery();
+  }
+
+  private void showSuggestions(SuggestionQuery query, List<T> result, QueryMetrics metrics) {
+    displaySuggestions(query, result, metrics);
+    reportCompleted(metrics);
+    pageReceived(query, result.size());
+  }
+
+  private void appendPage(SuggestionQuery query, List<T> result, QueryMetrics metrics) {
+    appendSuggestions(result, metrics);
+    reportCompleted(metrics);
+    pageReceived(query, result.size());
+  }
+
+  private void displaySuggestions(SuggestionQuery query, List<T> result, QueryMetrics metrics) {
+    if (!isSameSuggestions(suggestions, result)) {
+      selectedIndex = -1;
+    }
+    suggestions = result;
+    if (result.isEmpty()) {
+      displayedQuery = Optional.empty();
+      hideSuggestions();
+    } else {
+      final SuggestionQuery displayed = updateCaret(query);
+      displayedQuery = Optional.of(displayed);
+      view.showSuggestions(result, displayed, metrics);
+    }
+  }
+
+  private void appendSuggestions(List<T> result, QueryMetrics metrics) {
+    final List<T> appended = new ArrayList<>(suggestions.size() + result.size());
+    appended.addAll(suggestions);
+    appended.addAll(result);
+    suggestions = appended;
+    view.appendSuggestions(result, metrics);
+  }
+
+  private void reportCompleted(QueryMetrics metrics) {
+    if (metrics != null) {
+      metrics.setResultCount(suggestions.size());
+      metricsListener.ifPresent(l -> l.queryCompleted(metrics));
+    }
+  }
+
+  /**
+   * Remembers query of next page, if source returned full page. View is notified that next page can be loaded.
+   */
+  private void pageReceived(SuggestionQuery query, int count) {
+    nextPageRequested = false;
+    nextPage = pageSize > 0 && count == query.getLimit()
+      ? Optional.of(query.page(query.getOffset() + count, pageSize))
+      : Optional.empty();
+    if (nextPage.isPresent() && view.isShowingSuggestions()) {
+      view.nextPageAvailable();
+    }
+  }
+
+  /**
+   * @return true if source returned full page for displayed suggestions, so next page can be requested
+   */
+  public boolean hasNextPage() {
+    return nextPage.isPresent();
+  }
+
+  /**
+   * Load next page of displayed suggestions later, suggestions are appended to view. Does nothing if there is no next
+   * page or it was already requested.
+   */
+  public void requestNextPage() {
+    if (nextPage.isPresent() && !nextPageRequested) {
+      nextPageRequested = true;
+      //view can be scrolled while it is laid out
+      scheduler.execute(this::loadNextPage);
+    }
+  }
+
+  private void loadNextPage() {
+    if (!nextPage.isPresent() || pendingQuery.isPresent() || !view.isShowingSuggestions()) {
+      nextPageRequested = false;
+      return;
+    }
+    final SuggestionQuery query = nextPage.get();
+    nextPage = Optional.empty();
+    runQuery(query, true, metricsListener.isPresent() ? new QueryMetrics(query) : null);
+  }
+
+  public void hideSuggestions() {
+    selectedIndex = -1;
+    if (view.isShowingSuggestions()) {
+      view.hideSuggestions();
+    }
+  }
+
+  /**
+   * @return true if no query is waiting for delay or executed by source
+   */
+  public boolean isIdle() {
+    return !trailingQueryPending && !pendingQuery.isPresent();
+  }
+
+  /**
+   * @return suggestions of last completed query, displayed if view is showing suggestions
+   */
+  public List<T> getSuggestions() {
+    return Collections.unmodifiableList(suggestions);
+  }
+
+  /**
+   * @return query of displayed suggestions, empty if source did not return suggestions
+   */
+  public Optional<SuggestionQuery> getQuery() {
+    return displayedQuery;
+  }
+
+  /**
+   * @return index of selected suggestion, -1 if suggestion is not selected
+   */
+  public int getSelectedIndex() {
+    return selectedIndex;
+  }
+
+  public Optional<T> getSelectedSuggestion() {
+    return selectedIndex >= 0 ? Optional.of(suggestions.get(selectedIndex)) : Optional.empty();
+  }
+
+  /**
+   * Select suggestion, highlight listener is notified about selected suggestion
+   * @param index index of suggestion, -1 to clear selection
+   */
+  public void select(int index) {
+    if (index < -1 || index >= suggestions.size()) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", suggestions: " + suggestions.size());
+    }
+    selectedIndex = index;
+    if (index >= 0) {
+      highlightListener.ifPresent(l -> l.highlighted(suggestions.get(index)));
+    }
+  }
+
+  /**
+   * Select next suggestion, selection stays at last suggestion
+   */
+  public void selectNext() {
+    if (selectedIndex < suggestions.size() - 1) {
+      select(selectedIndex + 1);
+    }
+  }
+
+  /**
+   * Select previous suggestion, selection is cleared when first suggestion was selected
+   */
+  public void selectPrevious() {
+    if (selectedIndex >= 0) {
+      select(selectedIndex - 1);
+    }
+  }
+
+  /**
+   * Cancels pending query and delayed query, engine does not query source any more
+   */
+  public void dispose() {
+    disposed = true;
+    cancelPendingQuery();
+    debounceTask.stop();
+    trailingQueryPending = false;
+  }
+
+
+  /**
+   * Suggestion source query executed outside of thread of engine. Results are published only if query is still valid
+   * for text. Task is cancelled (and running thread is interrupted) when new query is submitted.
+   */
+  private abstract class QueryTask<V> extends FutureTask<V> {
+
+    protected final SuggestionQuery query;
+    protected final QueryMetrics metrics;
+    protected final boolean append;
+    private final long textVersion;
+    private volatile boolean cancelled = false;
+    private volatile long startNanos;
+
+    QueryTask(Callable<V> callable, SuggestionQuery query, long textVersion, QueryMetrics metrics, boolean append) {
+      super(callable);
+      this.query = query;
+      this.metrics = metrics;
+      this.append = append;
+      this.textVersion = textVersion;
+    }
+
+    @Override
+    public void run() {
+      startNanos = scheduler.nanoTime();
+      super.run();
+    }
+
+    /**
+     * Reports duration of completed query to scheduling policy and metrics
+     */
+    protected void queryCompleted() {
+      final long duration = scheduler.nanoTime() - startNanos;
+      scheduler.execute(() -> {
+        schedulingPolicy.queryCompleted(duration);
+        if (metrics != null) {
+          metrics.add(SuggestionStage.SOURCE, duration);
+        }
+      });
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+      cancelled = true;
+      return super.cancel(mayInterruptIfRunning);
+    }
+
+    @Override
+    public boolean isCancelled() {
+      return cancelled;
+    }
+
+    /**
+     * Executes action on thread of engine if query is still valid
+     */
+    protected void publish(Runnable action) {
+      if (isCancelled()) {
+        return;
+      }
+      scheduler.execute(() -> {
+        if (!isCancelled() && isCurrent(this)) {
+          action.run();
+        }
+      });
+    }
+  }
+
+  private class ListQueryTask extends QueryTask<List<T>> {
+
+    ListQueryTask(SuggestionQuery query, long textVersion, QueryMetrics metrics, boolean append) {
+      super(() -> suggestionSource.getSuggestions(query), query, textVersion, metrics, append);
+    }
+
+    @Override
+    protected void done() {
+      if (!isCancelled()) {
+        queryCompleted();
+      }
+      publish(() -> {
+        pendingQuery = Optional.empty();
+        try {
+          if (append) {
+            appendPage(query, get(), metrics);
+          } else {
+            showSuggestions(query, get(), metrics);
+          }
+        } catch (InterruptedException | CancellationException ignore) {
+          //query was replaced by newer one
+        } catch (ExecutionException e) {
+          e.printStackTrace();
+        }
+      });
+    }
+  }
+
+  /**
+   * Query of {@link StreamingSuggestionSource}. First chunk replaces displayed suggestions, next chunks are appended.
+   * All chunks of next page are appended.
+   */
+  private class StreamingQueryTask extends QueryTask<Void> {
+
+    private final StreamingConsumer consumer;
+
+    StreamingQueryTask(SuggestionQuery query, long textVersion, QueryMetrics metrics, boolean append) {
+      this(query, textVersion, metrics, append, new StreamingConsumer(append));
+    }
+
+    private StreamingQueryTask(SuggestionQuery query, long textVersion, QueryMetrics metrics, boolean append, StreamingConsumer consumer) {
+      super(() -> {
+        streamingSuggestionSource.getSuggestions(query, consumer);
+        return null;
+      }, query, textVersion, metrics, append);
+      this.consumer = consumer;
+      consumer.task = this;
+    }
+
+    @Override
+    protected void done() {
+      try {
+        get();
+      } catch (InterruptedException | CancellationException ignore) {
+        //query was replaced by newer one
+      } catch (ExecutionException e) {
+        e.printStackTrace();
+      }
+      //source failed or did not complete stream, suggestions received so far are kept
+      consumer.complete();
+    }
+  }
+
+  private class StreamingConsumer implements SuggestionConsumer<T> {
+
+    private StreamingQueryTask task;
+    private final AtomicBoolean completed = new AtomicBoolean(false);
+    private boolean displayed;
+    private int received = 0;
+
+    StreamingConsumer(boolean displayed) {
+      this.displayed = displayed;
+    }
+
+    @Override
+    public void accept(List<T> chunk) {
+      if (chunk.isEmpty()) {
+        return;
+      }
+      final List<T> copy = new ArrayList<>(chunk);
+      task.publish(() -> {
+        received += copy.size();
+        if (displayed) {
+          appendSuggestions(copy, task.metrics);
+        } else {
+          displayed = true;
+          displaySuggestions(task.query, copy, task.metrics);
+        }
+      });
+    }
+
+    @Override
+    public void complete() {
+      if (!completed.compareAndSet(false, true)) {
+        return;
+      }
+      if (!task.isCancelled()) {
+        task.queryCompleted();
+      }
+      task.publish(() -> {
+        pendingQuery = Optional.empty();
+        if (!displayed) {
+          displaySuggestions(task.query, new ArrayList<>(), task.metrics);
+        }
+        reportCompleted(task.metrics);
+        pageReceived(task.query, received);
+      });
+    }
+
+    @Override
+    public boolean isCancelled() {
+      return task.isCancelled();
+    }
+  }
+
+}
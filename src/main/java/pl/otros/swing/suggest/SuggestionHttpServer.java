@@ -0,0 +1,210 @@
+/*
+ * Copyright 2014 otros.systems@gmail.com
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package pl.otros.swing.suggest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Embedded HTTP server exposing suggestion source on loopback interface in format used by
+ * {@link HttpSuggestionSource}. Can simulate network latency, useful for testing remote suggestions locally.
+ *
+ * @param <T> Suggestion type
+ */
+public class SuggestionHttpServer<T> {
+
+  public static final String PATH = "/suggestions";
+
+  static {
+    //without TCP_NODELAY response body waits for delayed ACK of headers, adding ~40ms to every request
+    if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+      System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+  }
+
+  private final SuggestionSource<T> source;
+  private final Function<T, Object> resultMapper;
+  private final HttpServer server;
+  private final ExecutorService executor;
+  private final AtomicLong requestCount = new AtomicLong();
+  private volatile long minLatencyNanos = 0;
+  private volatile long maxLatencyNanos = 0;
+
+  /**
+   * @param source source of suggestions
+   * @param resultMapper converts suggestion to JSON value (Map, List, String, Number, Boolean or null)
+   * @param port port to listen on, 0 for any free port
+   */
+  public SuggestionHttpServer(SuggestionSource<T> source, Function<T, Object> resultMapper, int port) throws IOException {
+    this.source = source;
+    this.resultMapper = resultMapper;
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+    executor = Executors.newCachedThreadPool(r -> {
+      final Thread thread = new Thread(r, "Suggestion server");
+      thread.setDaemon(true);
+      return thread;
+    });
+    server.setExecutor(executor);
+    server.createContext(PATH, this::handle);
+  }
+
+  /**
+   * Every response is delayed by random time between min and max
+   */
+  public void setLatency(long min, long max, TimeUnit unit) {
+    minLatencyNanos = unit.toNanos(min);
+    maxLatencyNanos = unit.toNanos(Math.max(min, max));
+  }
+
+  public void start() {
+    server.start();
+  }
+
+  public void stop() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+
+  public URL getUrl() {
+    final InetSocketAddress address = server.getAddress();
+    try {
+      return new URL("http", address.getHostString(), address.getPort(), PATH);
+    } catch (MalformedURLException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  public long getRequestCount() {
+    return requestCount.get();
+  }
+
+  /**
+   * Converts suggestion to JSON object with "display" and "insert" fields
+   */
+  public static Object fromBasicSuggestion(BasicSuggestion suggestion) {
+    final Map<String, Object> json = new LinkedHashMap<>();
+    json.put("display", suggestion.getToDisplay());
+    json.put("insert", suggestion.getToInsert());
+    return json;
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    requestCount.incrementAndGet();
+    try {
+      if (!"POST".equals(exchange.getRequestMethod())) {
+        respond(exchange, HttpURLConnection.HTTP_BAD_METHOD, "{\"error\":\"POST expected\"}");
+        return;
+      }
+      final SuggestionQuery query;
+      try {
+        query = toQuery(Json.parse(readFully(exchange.getRequestBody())));
+      } catch (IOException | RuntimeException e) {
+        respond(exchange, HttpURLConnection.HTTP_BAD_REQUEST, Json.write(Collections.singletonMap("error", String.valueOf(e.getMessage()))));
+        return;
+      }
+      simulateLatency();
+      final List<T> suggestions = source.getSuggestions(query);
+      final List<Object> json = new ArrayList<>(suggestions.size());
+      for (T suggestion : suggestions) {
+        json.add(resultMapper.apply(suggestion));
+      }
+      respond(exchange, HttpURLConnection.HTTP_OK, Json.write(Collections.singletonMap("suggestions", json)));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (RuntimeException e) {
+      e.printStackTrace();
+      respond(exchange, HttpURLConnection.HTTP_INTERNAL_ERROR, "{}");
+    } finally {
+      exchange.close();
+    }
+  }
+
+  private void simulateLatency() throws InterruptedException {
+    final long min = minLatencyNanos;
+    final long max = maxLatencyNanos;
+    final long latency = max > min ? ThreadLocalRandom.current().nextLong(min, max) : min;
+    if (latency > 0) {
+      TimeUnit.NANOSECONDS.sleep(latency);
+    }
+  }
+
+  private static SuggestionQuery toQuery(Object json) throws IOException {
+    if (!(json instanceof Map)) {
+      throw new IOException("Expected JSON object");
+    }
+    final Map<?, ?> request = (Map<?, ?>) json;
+    final Object text = request.get("text");
+    if (!(text instanceof String)) {
+      throw new IOException("Missing text");
+    }
+    final int length = ((String) text).length();
+    final int caret = intValue(request, "caret", length);
+    final SuggestionQuery query = new SuggestionQuery((String) text, caret,
+      intValue(request, "selectionStart", caret),
+      intValue(request, "selectionEnd", caret),
+      intValue(request, "tokenStart", 0),
+      intValue(request, "tokenEnd", length));
+    return query.page(intValue(request, "offset", 0), intValue(request, "limit", SuggestionQuery.NO_LIMIT));
+  }
+
+  private static int intValue(Map<?, ?> request, String key, int defaultValue) {
+    final Object value = request.get(key);
+    return value instanceof Number ? ((Number) value).intValue() : defaultValue;
+  }
+
+  private static String readFully(InputStream in) throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final byte[] buffer = new byte[4096];
+    int read;
+    while ((read = in.read(buffer)) >= 0) {
+      out.write(buffer, 0, read);
+    }
+    return new String(out.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  private static void respond(HttpExchange exchange, int code, String body) throws IOException {
+    final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+    exchange.sendResponseHeaders(code, bytes.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(bytes);
+    }
+  }
+}
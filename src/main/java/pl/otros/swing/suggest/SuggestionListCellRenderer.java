@@ -0,0 +1,59 @@
+/*
+ * Copyright 2014 otros.systems@gmail.com
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package pl.otros.swing.suggest;
+
+import javax.swing.*;
+import javax.swing.border.Border;
+import java.awt.*;
+
+/**
+ * Adapter using {@link SuggestionRenderer} as {@link ListCellRenderer}. {@link RecyclingSuggestionRenderer} is
+ * used with single component bound to every rendered cell.
+ */
+class SuggestionListCellRenderer<T> implements ListCellRenderer<T> {
+
+  private final SuggestionRenderer<T> suggestionRenderer;
+  private JComponent stamp;
+
+  SuggestionListCellRenderer(SuggestionRenderer<T> suggestionRenderer) {
+    this.suggestionRenderer = suggestionRenderer;
+  }
+
+  @Override
+  public Component getListCellRendererComponent(JList<? extends T> list, T value, int index, boolean isSelected, boolean cellHasFocus) {
+    final JComponent component = getComponent(value);
+    component.setOpaque(true);
+    component.setBorder(border(list, component, isSelected));
+    return component;
+  }
+
+  private JComponent getComponent(T value) {
+    if (suggestionRenderer instanceof RecyclingSuggestionRenderer) {
+      final RecyclingSuggestionRenderer<T> recyclingRenderer = (RecyclingSuggestionRenderer<T>) suggestionRenderer;
+      if (stamp == null) {
+        stamp = recyclingRenderer.create();
+      }
+      recyclingRenderer.bind(stamp, value);
+      return stamp;
+    }
+    return suggestionRenderer.getSuggestionComponent(value);
+  }
+
+  private Border border(JList<? extends T> list, JComponent component, boolean selected) {
+    return BorderFactory.createLineBorder(selected ? component.getForeground() : list.getBackground());
+  }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2014 otros.systems@gmail.com
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package pl.otros.swing.suggest;
+
+/**
+ * Receives timings of suggestion queries. Query metrics are reported on thread of {@link SuggestionEngine}
+ * (EDT for decorated components), cache accesses on thread querying suggestion source. When listener is not set,
+ * timings are not measured at all.
+ */
+public interface SuggestionMetricsListener {
+
+  /**
+   * Called when suggestions of query are displayed (or hidden if there are no suggestions)
+   */
+  void queryCompleted(QueryMetrics metrics);
+
+  /**
+   * Called when query is cancelled, because text or caret was changed before query finished
+   */
+  void queryCancelled(SuggestionQuery query);
+
+  /**
+   * Called by {@link CachingSuggestionSource} on cache access
+   * @param hit true if results were found in cache
+   */
+  default void cacheAccessed(boolean hit) {
+  }
+
+}
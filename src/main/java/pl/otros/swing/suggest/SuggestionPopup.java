@@ -0,0 +1,51 @@
+/*
+ * Copyright 2014 otros.systems@gmail.com
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package pl.otros.swing.suggest;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.List;
+
+/**
+ * View displaying suggestions inside suggestion window.
+ */
+interface SuggestionPopup<T> {
+
+  /**
+   * @return component added to scroll pane of suggestion window
+   */
+  JComponent getView();
+
+  /**
+   * Replace displayed suggestions
+   * @return false if displayed rows were not changed, so view do not need to be laid out again
+   */
+  boolean setSuggestions(List<T> suggestions, SuggestionQuery query);
+
+  /**
+   * Add suggestions after already displayed ones, without rebuilding them
+   */
+  void appendSuggestions(List<T> suggestions);
+
+  void focusFirstSuggestion();
+
+  /**
+   * @return true if component is part of this popup
+   */
+  boolean isPopupComponent(Component component);
+
+}
@@ -1,24 +1,164 @@
 package pl.otros.swing.suggest;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class SuggestionQuery {
-  private String value;
+
+  /**
+   * Limit of query requesting all suggestions
+   */
+  public static final int NO_LIMIT = Integer.MAX_VALUE;
+
+  private final CharSequence text;
+  private volatile String value;
   private int caretLocation;
   private int selectionStart;
   private int selectionEnd;
+  private int tokenStart = -1;
+  private int tokenEnd = -1;
+  private int offset = 0;
+  private int limit = NO_LIMIT;
 
   public SuggestionQuery(String value, int caretLocation) {
     this(value, caretLocation, -1, -1);
   }
 
   public SuggestionQuery(String value, int caretLocation, int selectionStart, int selectionEnd) {
+    this.text = value;
     this.value = value;
     this.caretLocation = caretLocation;
     this.selectionStart = selectionStart;
     this.selectionEnd = selectionEnd;
   }
 
+  /**
+   * Creates query over text view, for example {@link DocumentCharSequence}. Text is copied only when
+   * {@link #getValue()} is called.
+   */
+  public SuggestionQuery(CharSequence text, int caretLocation, int selectionStart, int selectionEnd) {
+    this.text = text;
+    this.caretLocation = caretLocation;
+    this.selectionStart = selectionStart;
+    this.selectionEnd = selectionEnd;
+  }
+
+  /**
+   * Creates query over text view with known span of token at caret, for example found by {@link IncrementalTokenizer}.
+   */
+  public SuggestionQuery(CharSequence text, int caretLocation, int selectionStart, int selectionEnd, int tokenStart, int tokenEnd) {
+    this(text, caretLocation, selectionStart, selectionEnd);
+    this.tokenStart = tokenStart;
+    this.tokenEnd = tokenEnd;
+  }
+
+  /**
+   * Creates query for page of suggestions, with the same text, caret and token as this query.
+   * @param offset number of suggestions to skip, for example suggestions returned for previous pages
+   * @param limit maximum number of suggestions to return
+   */
+  public SuggestionQuery page(int offset, int limit) {
+    final SuggestionQuery page = new SuggestionQuery(text, caretLocation, selectionStart, selectionEnd);
+    page.value = value;
+    page.tokenStart = tokenStart;
+    page.tokenEnd = tokenEnd;
+    page.offset = offset;
+    page.limit = limit;
+    return page;
+  }
+
+  /**
+   * Creates query with copy of text, which can be used by other thread while text view is changed, for example
+   * {@link DocumentCharSequence} read outside of EDT. Token span is found before text is copied. Snapshot can be
+   * shared by threads.
+   * @return this query if text is already a string
+   */
+  public SuggestionQuery snapshot() {
+    final int start = getTokenStart();
+    final int end = getTokenEnd();
+    if (text instanceof String) {
+      getValue();
+      return this;
+    }
+    final SuggestionQuery copy = new SuggestionQuery((CharSequence) text.toString(), caretLocation, selectionStart, selectionEnd, start, end);
+    copy.offset = offset;
+    copy.limit = limit;
+    //lazy fields are computed, so copy can be read by many threads
+    copy.getValue();
+    return copy;
+  }
+
+  /**
+   * @return number of suggestions which should be skipped by source
+   */
+  public int getOffset() {
+    return offset;
+  }
+
+  /**
+   * @return maximum number of suggestions which should be returned by source, {@link #NO_LIMIT} if all suggestions
+   * are requested
+   */
+  public int getLimit() {
+    return limit;
+  }
+
+  /**
+   * @param maxResults maximum number of suggestions returned by source for all pages
+   * @return number of suggestions to return for this page
+   */
+  public int getPageLimit(int maxResults) {
+    return Math.max(0, Math.min(limit, maxResults - offset));
+  }
+
+  /**
+   * Selects requested page from all suggestions, for sources which can't skip suggestions themselves.
+   */
+  public <T> List<T> selectPage(List<T> suggestions) {
+    if (offset == 0 && limit >= suggestions.size()) {
+      return suggestions;
+    }
+    final int from = Math.min(offset, suggestions.size());
+    final int to = (int) Math.min((long) offset + limit, suggestions.size());
+    return new ArrayList<>(suggestions.subList(from, to));
+  }
+
+  /**
+   * @return whole text, with "\r\n" line endings replaced by "\n". Text is copied on first call.
+   */
   public String getValue() {
-    return value;
+    String result = value;
+    if (result == null) {
+      result = text.toString();
+      if (result.indexOf('\r') >= 0) {
+        result = result.replace("\r\n", "\n");
+      }
+      value = result;
+    }
+    return result;
+  }
+
+  /**
+   * Text of query without copying it. Sources interested only in part of text (for example token at caret)
+   * should use this view or {@link #getTextAroundCaret(int, int)} instead of {@link #getValue()}.
+   * @return view of text
+   */
+  public CharSequence getText() {
+    return text;
+  }
+
+  /**
+   * Part of text around caret. Window starts at <code>max(0, caretLocation - before)</code>.
+   * @param before maximum number of characters before caret
+   * @param after maximum number of characters after caret
+   * @return view of text around caret
+   */
+  public CharSequence getTextAroundCaret(int before, int after) {
+    final int length = text.length();
+    final int caret = Math.max(0, Math.min(caretLocation, length));
+    final int start = Math.max(0, caret - before);
+    final int end = (int) Math.min(length, (long) caret + after);
+    return text.subSequence(start, end);
   }
 
   public int getCaretLocation() {
@@ -33,13 +173,91 @@ public class SuggestionQuery {
     return selectionEnd;
   }
 
+  /**
+   * Start of token at caret. If token was not provided when query was created, token is text between whitespaces
+   * around caret.
+   * @return start of token, the same as caret location if there is no token before caret
+   */
+  public int getTokenStart() {
+    if (tokenStart < 0) {
+      findToken();
+    }
+    return tokenStart;
+  }
+
+  /**
+   * @return end of token at caret, the same as caret location if there is no token after caret
+   */
+  public int getTokenEnd() {
+    if (tokenEnd < 0) {
+      findToken();
+    }
+    return tokenEnd;
+  }
+
+  /**
+   * @return token at caret
+   */
+  public CharSequence getToken() {
+    return text.subSequence(getTokenStart(), getTokenEnd());
+  }
+
+  /**
+   * @return part of token at caret before caret
+   */
+  public CharSequence getTokenBeforeCaret() {
+    final int caret = Math.max(0, Math.min(caretLocation, text.length()));
+    return text.subSequence(Math.min(getTokenStart(), caret), caret);
+  }
+
+  private void findToken() {
+    final int length = text.length();
+    final int caret = Math.max(0, Math.min(caretLocation, length));
+    int start = caret;
+    while (start > 0 && !Character.isWhitespace(text.charAt(start - 1))) {
+      start--;
+    }
+    int end = caret;
+    while (end < length && !Character.isWhitespace(text.charAt(end))) {
+      end++;
+    }
+    tokenStart = start;
+    tokenEnd = end;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+
+    SuggestionQuery that = (SuggestionQuery) o;
+    return caretLocation == that.caretLocation
+      && selectionStart == that.selectionStart
+      && selectionEnd == that.selectionEnd
+      && offset == that.offset
+      && limit == that.limit
+      && getValue().equals(that.getValue());
+  }
+
+  @Override
+  public int hashCode() {
+    int result = getValue().hashCode();
+    result = 31 * result + caretLocation;
+    result = 31 * result + selectionStart;
+    result = 31 * result + selectionEnd;
+    result = 31 * result + offset;
+    result = 31 * result + limit;
+    return result;
+  }
+
   @Override
   public String toString() {
     return "SuggestionQuery{" +
-      "value='" + value + '\'' +
+      "value='" + getValue() + '\'' +
       ", caretLocation=" + caretLocation +
       ", selectionStart=" + selectionStart +
       ", selectionEnd=" + selectionEnd +
+      (limit != NO_LIMIT ? ", offset=" + offset + ", limit=" + limit : "") +
       '}';
   }
 }
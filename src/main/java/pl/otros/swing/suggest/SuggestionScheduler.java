@@ -0,0 +1,60 @@
+/*
+ * Copyright 2014 otros.systems@gmail.com
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package pl.otros.swing.suggest;
+
+/**
+ * Executes delayed and asynchronous actions of {@link SuggestionEngine}. All actions are executed on single thread,
+ * the same thread on which engine is used (EDT for Swing, see {@link SwingSuggestionScheduler}). Implementation with
+ * virtual clock allows to drive engine faster than real time.
+ */
+public interface SuggestionScheduler {
+
+  /**
+   * @return current time of scheduler in nanoseconds, used to measure delays and durations
+   */
+  long nanoTime();
+
+  /**
+   * Executes action later on thread of engine. Can be called from any thread.
+   */
+  void execute(Runnable action);
+
+  /**
+   * @return task executing action on thread of engine after delay, task is not started
+   */
+  DelayedTask createDelayedTask(Runnable action);
+
+  /**
+   * Action executed once after delay, it can be restarted to postpone execution
+   */
+  interface DelayedTask {
+
+    /**
+     * Schedule action after delay, pending execution is cancelled
+     */
+    void restart(long delayMillis);
+
+    void stop();
+
+    /**
+     * @return true if action is scheduled and was not executed yet
+     */
+    boolean isPending();
+
+  }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2014 otros.systems@gmail.com
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package pl.otros.swing.suggest;
+
+/**
+ * Stages of displaying suggestions, measured by {@link SuggestionMetricsListener}.
+ */
+public enum SuggestionStage {
+
+  /**
+   * From last change of text or caret to start of query
+   */
+  DEBOUNCE,
+  /**
+   * Execution of suggestion source
+   */
+  SOURCE,
+  /**
+   * Creating popup rows by {@link SuggestionRenderer}
+   */
+  RENDER,
+  /**
+   * Packing suggestion window
+   */
+  PACK,
+  /**
+   * Sizing and positioning suggestion window
+   */
+  LOCATION
+
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2014 otros.systems@gmail.com
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package pl.otros.swing.suggest;
+
+import java.util.List;
+
+/**
+ * Displays suggestions of {@link SuggestionEngine}. Methods are called on thread of engine.
+ */
+public interface SuggestionView<T> {
+
+  /**
+   * Called before suggestion source is queried
+   * @return false if suggestions can't be displayed now (for example component is not displayed), source is not queried
+   */
+  boolean isAvailable();
+
+  /**
+   * Display suggestions, replacing displayed ones. Suggestions are not empty.
+   * @param query query of suggestions, with current caret location
+   * @param metrics timings of query, view can add timings of rendering. Null if timings are not measured.
+   */
+  void showSuggestions(List<T> suggestions, SuggestionQuery query, QueryMetrics metrics);
+
+  /**
+   * Add suggestions after displayed ones, for example next page or next chunk of streaming source
+   * @param metrics timings of query, null if timings are not measured
+   */
+  void appendSuggestions(List<T> suggestions, QueryMetrics metrics);
+
+  void hideSuggestions();
+
+  boolean isShowingSuggestions();
+
+  /**
+   * Called when next page of displayed suggestions can be loaded with {@link SuggestionEngine#requestNextPage()},
+   * for example view can request it when suggestions are scrolled near to the end.
+   */
+  void nextPageAvailable();
+
+}
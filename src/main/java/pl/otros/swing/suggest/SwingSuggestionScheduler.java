@@ -0,0 +1,59 @@
+/*
+ * Copyright 2014 otros.systems@gmail.com
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package pl.otros.swing.suggest;
+
+import javax.swing.*;
+
+/**
+ * Scheduler executing actions on EDT using {@link Timer} and {@link SwingUtilities#invokeLater(Runnable)}
+ */
+public class SwingSuggestionScheduler implements SuggestionScheduler {
+
+  @Override
+  public long nanoTime() {
+    return System.nanoTime();
+  }
+
+  @Override
+  public void execute(Runnable action) {
+    SwingUtilities.invokeLater(action);
+  }
+
+  @Override
+  public DelayedTask createDelayedTask(Runnable action) {
+    final Timer timer = new Timer(0, e -> action.run());
+    timer.setRepeats(false);
+    return new DelayedTask() {
+      @Override
+      public void restart(long delayMillis) {
+        timer.setInitialDelay((int) delayMillis);
+        timer.restart();
+      }
+
+      @Override
+      public void stop() {
+        timer.stop();
+      }
+
+      @Override
+      public boolean isPending() {
+        return timer.isRunning();
+      }
+    };
+  }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2014 otros.systems@gmail.com
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package pl.otros.swing.suggest;
+
+/**
+ * Editable text with caret and selection, used to drive {@link SuggestionEngine} without UI. Editing methods do not
+ * notify engine, call {@link SuggestionEngine#textChanged()} or {@link SuggestionEngine#caretMoved()} after edit.
+ * Text returned by {@link #getText()} is immutable copy, so queries executed in background see text of their edit.
+ */
+public class TextBuffer implements TextState {
+
+  private final StringBuilder text;
+  private String snapshot;
+  private int caretPosition;
+  private int selectionStart;
+
+  public TextBuffer() {
+    this("");
+  }
+
+  /**
+   * @param text initial text, caret is placed at end of text
+   */
+  public TextBuffer(String text) {
+    this.text = new StringBuilder(text);
+    this.snapshot = text;
+    this.caretPosition = text.length();
+    this.selectionStart = caretPosition;
+  }
+
+  @Override
+  public CharSequence getText() {
+    if (snapshot == null) {
+      snapshot = text.toString();
+    }
+    return snapshot;
+  }
+
+  @Override
+  public int getCaretPosition() {
+    return caretPosition;
+  }
+
+  @Override
+  public int getSelectionStart() {
+    return Math.min(selectionStart, caretPosition);
+  }
+
+  @Override
+  public int getSelectionEnd() {
+    return Math.max(selectionStart, caretPosition);
+  }
+
+  public int length() {
+    return text.length();
+  }
+
+  /**
+   * Replace selection (or insert at caret) with string, caret is moved after inserted string
+   */
+  public void insert(String string) {
+    final int start = getSelectionStart();
+    text.replace(start, getSelectionEnd(), string);
+    snapshot = null;
+    setCaretPosition(start + string.length());
+  }
+
+  /**
+   * Insert string at offset like document edit, caret and selection after offset are moved
+   */
+  public void insert(int offset, String string) {
+    text.insert(offset, string);
+    snapshot = null;
+    selectionStart = shiftInserted(selectionStart, offset, string.length());
+    caretPosition = shiftInserted(caretPosition, offset, string.length());
+  }
+
+  /**
+   * Remove text like document edit, caret and selection after offset are moved
+   */
+  public void remove(int offset, int length) {
+    text.delete(offset, offset + length);
+    snapshot = null;
+    selectionStart = shiftRemoved(selectionStart, offset, length);
+    caretPosition = shiftRemoved(caretPosition, offset, length);
+  }
+
+  private static int shiftInserted(int position, int offset, int length) {
+    return position >= offset ? position + length : position;
+  }
+
+  private static int shiftRemoved(int position, int offset, int length) {
+    return position > offset ? Math.max(offset, position - length) : position;
+  }
+
+  /**
+   * Delete selection or character before caret
+   */
+  public void backspace() {
+    if (!deleteSelection() && caretPosition > 0) {
+      text.deleteCharAt(caretPosition - 1);
+      snapshot = null;
+      setCaretPosition(caretPosition - 1);
+    }
+  }
+
+  /**
+   * Delete selection or character after caret
+   */
+  public void delete() {
+    if (!deleteSelection() && caretPosition < text.length()) {
+      text.deleteCharAt(caretPosition);
+      snapshot = null;
+    }
+  }
+
+  private boolean deleteSelection() {
+    if (selectionStart == caretPosition) {
+      return false;
+    }
+    insert("");
+    return true;
+  }
+
+  /**
+   * Replace whole text, caret is placed at end of text
+   */
+  public void setText(String text) {
+    this.text.setLength(0);
+    this.text.append(text);
+    snapshot = text;
+    setCaretPosition(text.length());
+  }
+
+  /**
+   * Move caret and remove selection
+   */
+  public void setCaretPosition(int caretPosition) {
+    select(caretPosition, caretPosition);
+  }
+
+  /**
+   * Select text between positions, caret is placed at end position
+   */
+  public void select(int start, int end) {
+    if (start < 0 || end < 0 || start > text.length() || end > text.length()) {
+      throw new IndexOutOfBoundsException("Selection " + start + "-" + end + " outside of text of length " + text.length());
+    }
+    selectionStart = start;
+    caretPosition = end;
+  }
+
+  @Override
+  public String toString() {
+    return "TextBuffer{" +
+      "text='" + getText() + '\'' +
+      ", caretPosition=" + caretPosition +
+      ", selectionStart=" + selectionStart +
+      '}';
+  }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2014 otros.systems@gmail.com
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package pl.otros.swing.suggest;
+
+/**
+ * State of edited text read by {@link SuggestionEngine}: text, caret and selection. Implemented for Swing text
+ * components by decorator, use {@link TextBuffer} to edit text without UI.
+ */
+public interface TextState {
+
+  CharSequence getText();
+
+  int getCaretPosition();
+
+  /**
+   * @return start of selection, the same as end if nothing is selected
+   */
+  int getSelectionStart();
+
+  int getSelectionEnd();
+
+  /**
+   * @return query for current text and caret. Implementations can override it to provide span of token at caret.
+   */
+  default SuggestionQuery createQuery() {
+    return new SuggestionQuery(getText(), getCaretPosition(), getSelectionStart(), getSelectionEnd());
+  }
+
+}
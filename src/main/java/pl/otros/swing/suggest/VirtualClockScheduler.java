@@ -0,0 +1,201 @@
+/*
+ * Copyright 2014 otros.systems@gmail.com
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package pl.otros.swing.suggest;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scheduler with virtual clock, actions are executed only when clock is advanced by {@link #advanceTo(long)}. Used to
+ * drive {@link SuggestionEngine} without UI faster than real time, for example to replay recorded keystrokes.
+ * <p>
+ * If execution time is charged, clock is advanced by real time of every executed action, like busy EDT delays next
+ * events. Queries executed by {@link #getExecutor()} run immediately on calling thread, but their results are
+ * published at virtual time when query would complete on background thread, so queries can be cancelled by next
+ * keystrokes. Without charging execution time, actions take no time and replay is deterministic.
+ * </p>
+ */
+public class VirtualClockScheduler implements SuggestionScheduler {
+
+  private final boolean chargeExecutionTime;
+  private final PriorityQueue<Action> queue = new PriorityQueue<>();
+  private long now = 0;
+  private long sequence = 0;
+  /**
+   * Real time when executed action was started, -1 if action is not executed
+   */
+  private long busySince = -1;
+
+  public VirtualClockScheduler() {
+    this(true);
+  }
+
+  /**
+   * @param chargeExecutionTime true if clock should be advanced by real execution time of actions
+   */
+  public VirtualClockScheduler(boolean chargeExecutionTime) {
+    this.chargeExecutionTime = chargeExecutionTime;
+  }
+
+  @Override
+  public synchronized long nanoTime() {
+    return busySince >= 0 ? now + System.nanoTime() - busySince : now;
+  }
+
+  @Override
+  public void execute(Runnable action) {
+    schedule(nanoTime(), action);
+  }
+
+  /**
+   * Execute action when clock reaches time
+   * @param timeNanos virtual time in nanoseconds
+   */
+  public void executeAt(long timeNanos, Runnable action) {
+    schedule(timeNanos, action);
+  }
+
+  private synchronized Action schedule(long timeNanos, Runnable runnable) {
+    final Action action = new Action(timeNanos, sequence++, runnable);
+    queue.add(action);
+    return action;
+  }
+
+  @Override
+  public DelayedTask createDelayedTask(Runnable action) {
+    return new DelayedTask() {
+
+      private Action scheduled;
+
+      @Override
+      public void restart(long delayMillis) {
+        stop();
+        scheduled = schedule(nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis), action);
+      }
+
+      @Override
+      public void stop() {
+        if (scheduled != null) {
+          scheduled.cancelled = true;
+          scheduled = null;
+        }
+      }
+
+      @Override
+      public boolean isPending() {
+        return scheduled != null && !scheduled.executed && !scheduled.cancelled;
+      }
+    };
+  }
+
+  /**
+   * @return executor running tasks immediately on calling thread, execution time of tasks is not charged to clock
+   */
+  public Executor getExecutor() {
+    return task -> {
+      final long start = System.nanoTime();
+      task.run();
+      synchronized (this) {
+        if (busySince >= 0) {
+          busySince += System.nanoTime() - start;
+        }
+      }
+    };
+  }
+
+  /**
+   * Executes actions scheduled up to time, in order of time. Clock is set to time (or later, if execution time
+   * is charged and actions were executed longer).
+   * @param timeNanos virtual time in nanoseconds
+   */
+  public void advanceTo(long timeNanos) {
+    while (true) {
+      final Action action;
+      synchronized (this) {
+        action = queue.peek();
+        if (action == null || action.time > timeNanos) {
+          now = Math.max(now, timeNanos);
+          return;
+        }
+        queue.poll();
+        if (action.cancelled) {
+          continue;
+        }
+        now = Math.max(now, action.time);
+        action.executed = true;
+        if (chargeExecutionTime) {
+          busySince = System.nanoTime();
+        }
+      }
+      try {
+        action.runnable.run();
+      } finally {
+        synchronized (this) {
+          if (busySince >= 0) {
+            now += System.nanoTime() - busySince;
+            busySince = -1;
+          }
+        }
+      }
+    }
+  }
+
+  public void advance(long duration, TimeUnit unit) {
+    advanceTo(nanoTime() + unit.toNanos(duration));
+  }
+
+  /**
+   * Executes all scheduled actions, including actions scheduled by executed ones
+   */
+  public void runAll() {
+    while (true) {
+      final long time;
+      synchronized (this) {
+        while (!queue.isEmpty() && queue.peek().cancelled) {
+          queue.poll();
+        }
+        if (queue.isEmpty()) {
+          return;
+        }
+        time = queue.peek().time;
+      }
+      advanceTo(time);
+    }
+  }
+
+  private static class Action implements Comparable<Action> {
+    private final long time;
+    private final long sequence;
+    private final Runnable runnable;
+    private boolean cancelled = false;
+    private boolean executed = false;
+
+    Action(long time, long sequence, Runnable runnable) {
+      this.time = time;
+      this.sequence = sequence;
+      this.runnable = runnable;
+    }
+
+    @Override
+    public int compareTo(Action o) {
+      final int result = Long.compare(time, o.time);
+      return result != 0 ? result : Long.compare(sequence, o.sequence);
+    }
+  }
+}
@@ -19,11 +19,21 @@ package pl.otros.swing.suggest.demo;
 import pl.otros.swing.suggest.*;
 
 import javax.swing.*;
+import javax.swing.text.JTextComponent;
 import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.io.File;
+import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static java.lang.Math.max;
 import static java.lang.Math.min;
@@ -49,16 +59,23 @@ public class TestSuggestions {
       jTextArea.setEditable(true);
       jTextArea.setBorder(BorderFactory.createTitledBorder("Element description:"));
 
-      SuggestionSource<File> suggestionSource = new StringSuggestionSource();
-      SuggestionRenderer<File> suggestionRenderer = new FileSuggestionRenderer();
+      FileSystemSuggestionSource suggestionSource = new FileSystemSuggestionSource();
+      SuggestionRenderer<FileSuggestion> suggestionRenderer = new FileSuggestionRenderer();
 
-      SelectionListener<File> selectionListener = value -> {
-        textField.setText(value.getValue().getAbsolutePath());
+      SelectionListener<FileSuggestion> selectionListener = value -> {
+        textField.setText(value.getValue().getPath().toAbsolutePath().toString());
         textField.setCaretPosition(textField.getText().length());
         jTextArea.setText("Type: " + (value.getValue().isDirectory() ? "Folder" : "File"));
       };
 
-      SuggestDecorator.decorate(textField, suggestionSource, suggestionRenderer, selectionListener);
+      ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "Suggestions");
+        thread.setDaemon(true);
+        return thread;
+      });
+      SuggestDecorator.decorate(textField, suggestionSource, suggestionRenderer, selectionListener, false, executor);
+      SuggestDecorator.setVirtualizedPopup(textField, true);
+      SuggestDecorator.setHighlightListener(textField, suggestionSource);
 
 
       final SuggestionSource<BasicSuggestion> suggestionSource1 = query -> {
@@ -77,9 +94,25 @@ public class TestSuggestions {
       };
 
 
-      final SuggestionRenderer<BasicSuggestion> suggestionRenderer1 = suggestion -> new JLabel(suggestion.getToDisplay(), iconForString(suggestion.getToDisplay()), SwingConstants.CENTER);
+      final Map<String, Icon> icons = new HashMap<>();
+      final SuggestionRenderer<BasicSuggestion> suggestionRenderer1 = new RecyclingSuggestionRenderer<BasicSuggestion>() {
+        @Override
+        public JComponent create() {
+          return new JLabel("", SwingConstants.CENTER);
+        }
+
+        @Override
+        public void bind(JComponent component, BasicSuggestion suggestion) {
+          final JLabel label = (JLabel) component;
+          label.setText(suggestion.getToDisplay());
+          label.setIcon(icons.computeIfAbsent(suggestion.getToDisplay(), TestSuggestions::iconForString));
+        }
+      };
       final SelectionListener<BasicSuggestion> selectionListener1 = new StringInsertSuggestionListener();
-      SuggestDecorator.decorate(jTextArea, suggestionSource1, suggestionRenderer1, selectionListener1);
+      final FrecencyRanking<BasicSuggestion> ranking = new FrecencyRanking<>(BasicSuggestion::getToInsert, 7, TimeUnit.DAYS);
+      SuggestDecorator.decorate(jTextArea, ranking.rank(suggestionSource1), suggestionRenderer1, ranking.record(selectionListener1));
+      SuggestDecorator.setSchedulingPolicy(jTextArea, new AdaptiveSchedulingPolicy());
+      recordTrace(frame, jTextArea);
 
       textField.setText(File.listRoots()[0].getAbsolutePath());
 
@@ -100,6 +133,29 @@ public class TestSuggestions {
 
   }
 
+  /**
+   * Records typing in text component to file set by system property "suggest.trace", trace is written when frame
+   * is closed and can be replayed by {@link KeystrokeTraceReplayer}
+   */
+  private static void recordTrace(JFrame frame, JTextComponent textComponent) {
+    final String traceFile = System.getProperty("suggest.trace");
+    if (traceFile == null) {
+      return;
+    }
+    final KeystrokeTraceRecorder recorder = new KeystrokeTraceRecorder(textComponent);
+    recorder.start();
+    frame.addWindowListener(new WindowAdapter() {
+      @Override
+      public void windowClosing(WindowEvent e) {
+        try {
+          recorder.stop().write(Paths.get(traceFile));
+        } catch (IOException ex) {
+          ex.printStackTrace();
+        }
+      }
+    });
+  }
+
   private static Icon iconForString(String s) {
     final int hashCode = s.hashCode() * 1001;
     float h = ((float) hashCode % 255) / 255;
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2014 otros.systems@gmail.com
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package pl.otros.swing.suggest;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+public class ComponentSuggestionPopupTest {
+
+  private final SuggestionQuery query = new SuggestionQuery("", 0);
+  private ComponentSuggestionPopup<String> popup;
+
+  @Before
+  public void setUp() {
+    final SuggestionRenderer<String> renderer = JLabel::new;
+    final SuggestionDocumentListener<String> owner =
+      new SuggestionDocumentListener<>(new JTextField(), q -> Collections.emptyList(), renderer, value -> {
+      });
+    popup = new ComponentSuggestionPopup<>(owner, renderer);
+  }
+
+  @Test
+  public void removesRowsOfDuplicatedSuggestions() {
+    popup.setSuggestions(Arrays.asList("a", "b", "a", "a"), query);
+    assertEquals(Arrays.asList("a", "b", "a", "a"), displayed());
+
+    popup.setSuggestions(Arrays.asList("a", "b", "a", "a"), query);
+    assertEquals(Arrays.asList("a", "b", "a", "a"), displayed());
+
+    popup.setSuggestions(Arrays.asList("c", "a"), query);
+    assertEquals(Arrays.asList("c", "a"), displayed());
+
+    popup.setSuggestions(Collections.singletonList("d"), query);
+    assertEquals(Collections.singletonList("d"), displayed());
+  }
+
+  @Test
+  public void reusesRowsOfEqualSuggestions() {
+    popup.setSuggestions(Arrays.asList("a", "a", "b"), query);
+    final Component[] before = popup.getView().getComponents();
+
+    popup.setSuggestions(Arrays.asList("b", "a", "a", "c"), query);
+
+    final Component[] after = popup.getView().getComponents();
+    assertEquals(Arrays.asList("b", "a", "a", "c"), displayed());
+    assertSame(before[2], after[0]);
+    assertSame(before[0], after[1]);
+    assertSame(before[1], after[2]);
+  }
+
+  @Test
+  public void reportsUnchangedSuggestions() {
+    popup.setSuggestions(Arrays.asList("a", "a"), query);
+
+    assertFalse(popup.setSuggestions(Arrays.asList("a", "a"), query));
+  }
+
+  private List<String> displayed() {
+    final List<String> texts = new ArrayList<>();
+    for (Component component : popup.getView().getComponents()) {
+      texts.add(((JLabel) component).getText());
+    }
+    return texts;
+  }
+}
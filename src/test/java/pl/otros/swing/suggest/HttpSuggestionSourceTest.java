@@ -0,0 +1,265 @@
+/*
+ * Copyright 2014 otros.systems@gmail.com
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package pl.otros.swing.suggest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HttpSuggestionSourceTest {
+
+  private static final List<String> LOCAL = Collections.singletonList("local");
+
+  /**
+   * Released when test ends, slow responses wait for it
+   */
+  private final CountDownLatch release = new CountDownLatch(1);
+
+  private volatile SuggestionSource<String> upstream;
+  private SuggestionHttpServer<String> server;
+  private HttpSuggestionSource<String> source;
+  private ExecutorService executor;
+
+  @Before
+  public void setUp() throws IOException {
+    upstream = query -> Collections.singletonList(query.getValue() + "!");
+    server = new SuggestionHttpServer<>(query -> upstream.getSuggestions(query), s -> s, 0);
+    server.start();
+    source = new HttpSuggestionSource<>(server.getUrl(), Object::toString);
+    executor = Executors.newCachedThreadPool();
+  }
+
+  @After
+  public void tearDown() {
+    release.countDown();
+    executor.shutdownNow();
+    source.close();
+    server.stop();
+  }
+
+  @Test
+  public void returnsSuggestionsOfServer() {
+    assertEquals(Collections.singletonList("ab!"), source.getSuggestions(new SuggestionQuery("ab", 2)));
+    assertEquals(1, server.getRequestCount());
+  }
+
+  @Test
+  public void sendsOneRequestForIdenticalQueriesInFlight() throws Exception {
+    server.setLatency(300, 300, TimeUnit.MILLISECONDS);
+    final CountDownLatch start = new CountDownLatch(1);
+    final List<Future<List<String>>> results = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      results.add(executor.submit(() -> {
+        start.await();
+        return source.getSuggestions(new SuggestionQuery("ab", 2));
+      }));
+    }
+    start.countDown();
+    for (Future<List<String>> result : results) {
+      assertEquals(Collections.singletonList("ab!"), result.get(5, TimeUnit.SECONDS));
+    }
+    assertEquals(1, server.getRequestCount());
+    assertEquals(4, source.getCoalescedCount());
+  }
+
+  @Test
+  public void closesConnectionWhenQueryIsCancelled() throws Exception {
+    try (DisconnectDetectingRelay relay = new DisconnectDetectingRelay(server.getUrl())) {
+      source.close();
+      source = new HttpSuggestionSource<>(relay.getUrl(), Object::toString);
+      server.setLatency(5, 5, TimeUnit.SECONDS);
+      final Future<List<String>> result = executor.submit(() -> source.getSuggestions(new SuggestionQuery("ab", 2)));
+      awaitRequests(1);
+
+      result.cancel(true);
+
+      assertTrue("connection was not closed", relay.clientClosed.await(5, TimeUnit.SECONDS));
+      awaitTrue(() -> source.getCancelledCount() == 1);
+      server.setLatency(0, 0, TimeUnit.MILLISECONDS);
+      assertEquals(Collections.singletonList("ab!"), source.getSuggestions(new SuggestionQuery("ab", 2)));
+    }
+  }
+
+  @Test
+  public void hedgesRequestSlowerThanPercentile() {
+    for (int i = 0; i < 30; i++) {
+      source.getSuggestions(new SuggestionQuery("warm up " + i, 0));
+    }
+    final Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+    upstream = query -> {
+      if (calls.computeIfAbsent(query.getValue(), k -> new AtomicInteger()).incrementAndGet() == 1) {
+        awaitRelease();
+        return Collections.singletonList(query.getValue() + " primary");
+      }
+      return Collections.singletonList(query.getValue() + "!");
+    };
+    source.setHedging(90);
+
+    final List<String> suggestions = source.getSuggestions(new SuggestionQuery("slow", 4));
+
+    assertEquals("hedged response was not used", Collections.singletonList("slow!"), suggestions);
+    assertEquals(1, source.getHedgedCount());
+    assertEquals(2, calls.get("slow").get());
+  }
+
+  @Test
+  public void usesFallbackOnTimeout() {
+    upstream = query -> {
+      awaitRelease();
+      return Collections.singletonList(query.getValue() + "!");
+    };
+    source.setTimeout(100, TimeUnit.MILLISECONDS);
+    source.setFallback(query -> LOCAL);
+
+    assertEquals(LOCAL, source.getSuggestions(new SuggestionQuery("ab", 2)));
+    assertEquals(1, source.getFallbackCount());
+    assertEquals(1, server.getRequestCount());
+  }
+
+  @Test
+  public void usesFallbackOnServerError() {
+    upstream = query -> {
+      throw new IllegalStateException("Source failed");
+    };
+    source.setFallback(query -> LOCAL);
+
+    assertEquals(LOCAL, source.getSuggestions(new SuggestionQuery("ab", 2)));
+    assertEquals(1, source.getFallbackCount());
+  }
+
+  private void awaitRequests(int count) throws InterruptedException {
+    awaitTrue(() -> server.getRequestCount() >= count);
+  }
+
+  private static void awaitTrue(Condition condition) throws InterruptedException {
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!condition.isMet()) {
+      assertTrue("condition not met in 5 seconds", System.nanoTime() < deadline);
+      Thread.sleep(10);
+    }
+  }
+
+  /**
+   * Blocks server thread until test ends, much longer than timeout or hedge delay
+   */
+  private void awaitRelease() {
+    try {
+      release.await(30, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private interface Condition {
+    boolean isMet();
+  }
+
+  /**
+   * TCP relay in front of server, detects when client closes connection. Connections are kept alive by client, so
+   * closed connection means aborted request.
+   */
+  private static class DisconnectDetectingRelay implements Closeable {
+    private final ServerSocket serverSocket;
+    private final URL target;
+    private final CountDownLatch clientClosed = new CountDownLatch(1);
+
+    DisconnectDetectingRelay(URL target) throws IOException {
+      this.target = target;
+      serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+      daemon(this::accept);
+    }
+
+    URL getUrl() throws IOException {
+      return new URL("http", serverSocket.getInetAddress().getHostAddress(), serverSocket.getLocalPort(), target.getPath());
+    }
+
+    private void accept() {
+      try {
+        while (true) {
+          final Socket client = serverSocket.accept();
+          final Socket server = new Socket(target.getHost(), target.getPort());
+          daemon(() -> {
+            copy(client, server);
+            clientClosed.countDown();
+          });
+          daemon(() -> copy(server, client));
+        }
+      } catch (IOException e) {
+        //relay is closed
+      }
+    }
+
+    private static void copy(Socket from, Socket to) {
+      try (InputStream in = from.getInputStream(); OutputStream out = to.getOutputStream()) {
+        final byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) >= 0) {
+          out.write(buffer, 0, read);
+          out.flush();
+        }
+      } catch (IOException e) {
+        //connection closed
+      } finally {
+        closeQuietly(from);
+        closeQuietly(to);
+      }
+    }
+
+    private static void closeQuietly(Socket socket) {
+      try {
+        socket.close();
+      } catch (IOException e) {
+        //already closed
+      }
+    }
+
+    private static void daemon(Runnable runnable) {
+      final Thread thread = new Thread(runnable, "Test relay");
+      thread.setDaemon(true);
+      thread.start();
+    }
+
+    @Override
+    public void close() throws IOException {
+      serverSocket.close();
+    }
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2014 otros.systems@gmail.com
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package pl.otros.swing.suggest;
+
+import org.junit.Test;
+
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.PlainDocument;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class IncrementalTokenizerTest {
+
+  private static final String ALPHABET = "ab_  \n\t";
+
+  @Test
+  public void keepsTokensOfRandomEditsEqualToFullLexing() throws BadLocationException {
+    for (long seed = 0; seed < 20; seed++) {
+      final Random random = new Random(seed);
+      final PlainDocument document = new PlainDocument();
+      document.insertString(0, randomText(random, 50), null);
+      final IncrementalTokenizer tokenizer = new IncrementalTokenizer();
+      tokenizer.reset(document);
+      document.addDocumentListener(new TokenizerUpdater(tokenizer));
+
+      for (int i = 0; i < 500; i++) {
+        final int length = document.getLength();
+        if (length > 0 && random.nextInt(3) == 0) {
+          final int offset = random.nextInt(length);
+          document.remove(offset, 1 + random.nextInt(Math.min(length - offset, 10)));
+        } else {
+          document.insertString(random.nextInt(length + 1), randomText(random, 1 + random.nextInt(random.nextBoolean() ? 2 : 20)), null);
+        }
+        final String message = "seed " + seed + ", edit " + i + ", text '" + document.getText(0, document.getLength()) + "'";
+        assertEquals(message, lex(document.getText(0, document.getLength())), spans(tokenizer));
+      }
+    }
+  }
+
+  @Test
+  public void findsTokenAtOffset() throws BadLocationException {
+    final PlainDocument document = new PlainDocument();
+    final IncrementalTokenizer tokenizer = new IncrementalTokenizer();
+    tokenizer.reset(document);
+    document.addDocumentListener(new TokenizerUpdater(tokenizer));
+    document.insertString(0, "ab    cd", null);
+    document.insertString(3, "x", null);
+
+    assertEquals(3, tokenizer.getTokenCount());
+    assertEquals(0, tokenizer.findToken(0));
+    assertEquals(0, tokenizer.findToken(2));
+    assertEquals(1, tokenizer.findToken(3));
+    assertEquals(1, tokenizer.findToken(4));
+    assertEquals(-1, tokenizer.findToken(5));
+    assertEquals(2, tokenizer.findToken(7));
+    assertEquals(2, tokenizer.findToken(9));
+  }
+
+  private static String randomText(Random random, int length) {
+    final StringBuilder sb = new StringBuilder(length);
+    for (int i = 0; i < length; i++) {
+      sb.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+    }
+    return sb.toString();
+  }
+
+  private static List<String> lex(String text) {
+    final List<String> spans = new ArrayList<>();
+    int start = -1;
+    for (int i = 0; i <= text.length(); i++) {
+      final boolean token = i < text.length() && !Character.isWhitespace(text.charAt(i));
+      if (token && start < 0) {
+        start = i;
+      } else if (!token && start >= 0) {
+        spans.add(start + "-" + i);
+        start = -1;
+      }
+    }
+    return spans;
+  }
+
+  private static List<String> spans(IncrementalTokenizer tokenizer) {
+    final List<String> spans = new ArrayList<>();
+    for (int i = 0; i < tokenizer.getTokenCount(); i++) {
+      spans.add(tokenizer.getTokenStart(i) + "-" + tokenizer.getTokenEnd(i));
+    }
+    return spans;
+  }
+
+  private static class TokenizerUpdater implements DocumentListener {
+    private final IncrementalTokenizer tokenizer;
+
+    TokenizerUpdater(IncrementalTokenizer tokenizer) {
+      this.tokenizer = tokenizer;
+    }
+
+    @Override
+    public void insertUpdate(DocumentEvent e) {
+      tokenizer.insertUpdate(e);
+    }
+
+    @Override
+    public void removeUpdate(DocumentEvent e) {
+      tokenizer.removeUpdate(e);
+    }
+
+    @Override
+    public void changedUpdate(DocumentEvent e) {
+    }
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2014 otros.systems@gmail.com
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+
+package pl.otros.swing.suggest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class KeystrokeTraceTest {
+
+  private Path file;
+
+  @Before
+  public void setUp() throws IOException {
+    file = Files.createTempFile("keystrokes", ".bin");
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(file);
+  }
+
+  @Test
+  public void readsWrittenTrace() throws IOException {
+    final KeystrokeTrace trace = new KeystrokeTrace("ab \u017c", 4, 1, Arrays.asList(
+      KeystrokeTrace.Event.insert(0, 4, "\u00f3\u0142w"),
+      KeystrokeTrace.Event.remove(1_500_000, 0, 2),
+      KeystrokeTrace.Event.caret(2_000_999, 1, 3),
+      KeystrokeTrace.Event.insert(TimeUnit.HOURS.toNanos(1), 0, "")));
+
+    trace.write(file);
+    final KeystrokeTrace read = KeystrokeTrace.read(file);
+
+    assertEquals("ab \u017c", read.getInitialText());
+    assertEquals(4, read.getInitialDot());
+    assertEquals(1, read.getInitialMark());
+    assertEquals(4, read.getEvents().size());
+    assertEvent(KeystrokeTrace.EventType.INSERT, 0, 4, 3, "\u00f3\u0142w", read.getEvents().get(0));
+    assertEvent(KeystrokeTrace.EventType.REMOVE, 1_500_000, 0, 2, "", read.getEvents().get(1));
+    //times are stored in microseconds
+    assertEvent(KeystrokeTrace.EventType.CARET, 2_000_000, 1, 0, "", read.getEvents().get(2));
+    assertEquals(3, read.getEvents().get(2).getMark());
+    assertEvent(KeystrokeTrace.EventType.INSERT, TimeUnit.HOURS.toNanos(1), 0, 0, "", read.getEvents().get(3));
+    assertEquals(TimeUnit.HOURS.toNanos(1), read.getDuration());
+  }
+
+  @Test
+  public void replaysTraceWithDelayOfPolicy() {
+    final KeystrokeTraceReplayer<String> replayer = new KeystrokeTraceReplayer<>(query -> Collections.singletonList(query.getValue()));
+    replayer.setSchedulingPolicy(() -> new FixedDelaySchedulingPolicy(200, false));
+
+    final ReplayReport report = replayer.replay(typing());
+
+    assertEquals(4, report.getEventCount());
+    assertEquals(2, report.getSourceCalls());
+    assertEquals(2, report.getCompletedQueries());
+    assertEquals(0, report.getCancelledQueries());
+    assertEquals(0, report.getWastedQueries());
+    final long debounce = report.getLatencies().getPercentile(SuggestionStage.DEBOUNCE, 100);
+    assertTrue("Debounce " + debounce, debounce >= TimeUnit.MILLISECONDS.toNanos(200));
+    assertTrue("Debounce " + debounce, debounce < TimeUnit.MILLISECONDS.toNanos(300));
+  }
+
+  @Test
+  public void replaysTraceWithLeadingEdgeQueries() {
+    final KeystrokeTraceReplayer<String> replayer = new KeystrokeTraceReplayer<>(query -> Collections.singletonList(query.getValue()));
+    replayer.setSchedulingPolicy(() -> new FixedDelaySchedulingPolicy(200, true));
+
+    final ReplayReport report = replayer.replay(typing());
+
+    //first keystroke of every burst and end of first burst
+    assertEquals(3, report.getSourceCalls());
+    assertEquals(3, report.getCompletedQueries());
+    assertEquals(0, report.getWastedQueries());
+  }
+
+  /**
+   * Burst of 3 keystrokes 50 ms apart and single keystroke after 1 second
+   */
+  private static KeystrokeTrace typing() {
+    final List<KeystrokeTrace.Event> events = Arrays.asList(
+      KeystrokeTrace.Event.insert(0, 0, "a"),
+      KeystrokeTrace.Event.insert(TimeUnit.MILLISECONDS.toNanos(50), 1, "b"),
+      KeystrokeTrace.Event.insert(TimeUnit.MILLISECONDS.toNanos(100), 2, "c"),
+      KeystrokeTrace.Event.insert(TimeUnit.MILLISECONDS.toNanos(1000), 3, "d"));
+    return new KeystrokeTrace("", 0, 0, events);
+  }
+
+  private static void assertEvent(KeystrokeTrace.EventType type, long timeNanos, int offset, int length, String text,
+                                  KeystrokeTrace.Event event) {
+    assertEquals(type, event.getType());
+    assertEquals(timeNanos, event.getTimeNanos());
+    assertEquals(offset, event.getOffset());
+    assertEquals(length, event.getLength());
+    assertEquals(text, event.getText());
+  }
+}
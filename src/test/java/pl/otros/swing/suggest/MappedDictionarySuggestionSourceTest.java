@@ -0,0 +1,113 @@
+/*
+ * Copyright 2014 otros.systems@gmail.com
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package pl.otros.swing.suggest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+public class MappedDictionarySuggestionSourceTest {
+
+  private static final String[] WORDS = {"log", "Logger", "logging", "LOG", "parser", "Parse", "\u017c\u00f3\u0142w", "a", "ab", "abc"};
+
+  private Path file;
+
+  @Before
+  public void setUp() throws IOException {
+    file = Files.createTempFile("dictionary", ".dict");
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(file);
+  }
+
+  @Test
+  public void returnsTheSameSuggestionsAsPrefixIndex() throws IOException {
+    final List<BasicSuggestion> suggestions = randomSuggestions(new Random(1), 2000);
+    for (boolean ignoreCase : new boolean[]{false, true}) {
+      for (int blockSize : new int[]{1, 4, MappedDictionaryWriter.DEFAULT_BLOCK_SIZE}) {
+        MappedDictionaryWriter.write(suggestions, file, ignoreCase, blockSize);
+        final MappedDictionarySuggestionSource mapped = new MappedDictionarySuggestionSource(file, 50);
+        final PrefixIndexSuggestionSource index = new PrefixIndexSuggestionSource(suggestions, ignoreCase, 50);
+
+        assertEquals(index.size(), mapped.size());
+        for (String prefix : prefixes(suggestions)) {
+          final String message = "prefix '" + prefix + "', ignoreCase " + ignoreCase + ", block " + blockSize;
+          assertEquals(message, index.complete(prefix, 1000), mapped.complete(prefix, 1000));
+          assertEquals(message, index.complete(prefix, 3, 5), mapped.complete(prefix, 3, 5));
+          final SuggestionQuery query = new SuggestionQuery(prefix, prefix.length());
+          assertEquals(message, index.getSuggestions(query), mapped.getSuggestions(query));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void removesDuplicatesNotAdjacentInInput() throws IOException {
+    final List<BasicSuggestion> suggestions = Arrays.asList(
+      new BasicSuggestion("a", "1"), new BasicSuggestion("a", "2"), new BasicSuggestion("a", "1"),
+      new BasicSuggestion("ab", "x"), new BasicSuggestion("AB", "x"), new BasicSuggestion("ab", "x"));
+    MappedDictionaryWriter.write(suggestions, file, true);
+    final MappedDictionarySuggestionSource mapped = new MappedDictionarySuggestionSource(file, 50);
+
+    assertEquals(4, mapped.size());
+    assertEquals(4, new PrefixIndexSuggestionSource(suggestions, true, 50).size());
+    assertEquals(Arrays.asList(new BasicSuggestion("a", "1"), new BasicSuggestion("a", "2"),
+      new BasicSuggestion("AB", "x"), new BasicSuggestion("ab", "x")), mapped.complete("a", 10));
+  }
+
+  private static List<BasicSuggestion> randomSuggestions(Random random, int count) {
+    final List<BasicSuggestion> suggestions = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      final StringBuilder display = new StringBuilder(WORDS[random.nextInt(WORDS.length)]);
+      final int parts = random.nextInt(3);
+      for (int p = 0; p < parts; p++) {
+        display.append(random.nextBoolean() ? '.' : '_').append(WORDS[random.nextInt(WORDS.length)]);
+      }
+      final String toDisplay = display.toString();
+      final String toInsert = random.nextInt(4) == 0 ? toDisplay + random.nextInt(3) : toDisplay;
+      suggestions.add(new BasicSuggestion(toDisplay, toInsert));
+    }
+    return suggestions;
+  }
+
+  private static Set<String> prefixes(List<BasicSuggestion> suggestions) {
+    final Set<String> prefixes = new LinkedHashSet<>(Arrays.asList("", "x", "zzz", "\uffff"));
+    for (BasicSuggestion suggestion : suggestions.subList(0, 200)) {
+      final String display = suggestion.getToDisplay();
+      for (int i = 1; i <= display.length(); i++) {
+        prefixes.add(display.substring(0, i));
+        prefixes.add(display.substring(0, i).toUpperCase());
+      }
+    }
+    return prefixes;
+  }
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright 2014 otros.systems@gmail.com
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+
+package pl.otros.swing.suggest;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SuggestionEngineTest {
+
+  private VirtualClockScheduler scheduler;
+  private TextBuffer text;
+  private RecordingView view;
+  private List<String> queries;
+
+  @Before
+  public void setUp() {
+    scheduler = new VirtualClockScheduler(false);
+    text = new TextBuffer();
+    view = new RecordingView();
+    queries = new ArrayList<>();
+  }
+
+  @Test
+  public void queriesSourceOnceAfterBurstOfEdits() {
+    final SuggestionEngine<String> engine = new SuggestionEngine<>(text, this::suggest, view, scheduler, null);
+    engine.setSchedulingPolicy(new FixedDelaySchedulingPolicy(100, false));
+
+    type(engine, "a");
+    scheduler.advance(50, TimeUnit.MILLISECONDS);
+    type(engine, "b");
+    scheduler.advance(50, TimeUnit.MILLISECONDS);
+    type(engine, "c");
+    scheduler.advance(99, TimeUnit.MILLISECONDS);
+    assertEquals(Collections.emptyList(), queries);
+    assertFalse(engine.isIdle());
+
+    scheduler.advance(1, TimeUnit.MILLISECONDS);
+    assertEquals(Collections.singletonList("abc"), queries);
+    assertEquals(Arrays.asList("abc1", "abc2"), view.shown);
+    assertTrue(engine.isIdle());
+  }
+
+  @Test
+  public void discardsResultsOfStaleQuery() {
+    final Queue<Runnable> executor = new ArrayDeque<>();
+    final SuggestionEngine<String> engine = new SuggestionEngine<>(text, this::suggest, view, scheduler, executor::add);
+    engine.setSchedulingPolicy(new FixedDelaySchedulingPolicy(100, false));
+
+    type(engine, "a");
+    scheduler.runAll();
+    assertEquals(1, executor.size());
+    //query completed, but text is edited before result is published
+    executor.poll().run();
+    type(engine, "b");
+    scheduler.runAll();
+    assertEquals(Collections.singletonList("a"), queries);
+    assertFalse(view.showing);
+    assertFalse(engine.isIdle());
+
+    executor.poll().run();
+    scheduler.runAll();
+    assertEquals(Arrays.asList("a", "ab"), queries);
+    assertEquals(Arrays.asList("ab1", "ab2"), view.shown);
+    assertTrue(engine.isIdle());
+  }
+
+  @Test
+  public void appendsNextPages() {
+    final List<String> all = IntStream.range(0, 7).mapToObj(i -> "a" + i).collect(Collectors.toList());
+    final SuggestionSource<String> source = query -> all.subList(Math.min(query.getOffset(), all.size()),
+      Math.min(query.getOffset() + query.getLimit(), all.size()));
+    final SuggestionEngine<String> engine = new SuggestionEngine<>(text, source, view, scheduler, null);
+    engine.setSchedulingPolicy(new FixedDelaySchedulingPolicy(100, false));
+    engine.setPageSize(3);
+
+    type(engine, "a");
+    scheduler.runAll();
+    assertEquals(all.subList(0, 3), view.shown);
+    assertTrue(engine.hasNextPage());
+    assertEquals(1, view.nextPageAvailable);
+
+    engine.requestNextPage();
+    engine.requestNextPage();
+    scheduler.runAll();
+    assertEquals(all.subList(0, 6), view.shown);
+    assertTrue(engine.hasNextPage());
+
+    engine.requestNextPage();
+    scheduler.runAll();
+    assertEquals(all, view.shown);
+    assertEquals(all, engine.getSuggestions());
+    assertFalse(engine.hasNextPage());
+    assertEquals(2, view.nextPageAvailable);
+  }
+
+  @Test
+  public void appendsChunksOfStreamingSource() {
+    final StreamingSuggestionSource<String> source = (query, consumer) -> {
+      consumer.accept(Arrays.asList("a1", "a2"));
+      consumer.accept(Collections.singletonList("a3"));
+      consumer.complete();
+    };
+    final SuggestionEngine<String> engine = new SuggestionEngine<>(text, source, view, scheduler, null);
+    engine.setSchedulingPolicy(new FixedDelaySchedulingPolicy(100, false));
+
+    type(engine, "a");
+    scheduler.runAll();
+    assertEquals(Arrays.asList("a1", "a2", "a3"), view.shown);
+    assertEquals(Arrays.asList("a1", "a2", "a3"), engine.getSuggestions());
+    assertTrue(engine.isIdle());
+  }
+
+  @Test
+  public void completesQueryOfFailedStreamingSource() {
+    final StreamingSuggestionSource<String> source = (query, consumer) -> {
+      consumer.accept(Collections.singletonList(query.getValue() + "1"));
+      throw new IllegalStateException("Source failed");
+    };
+    final SuggestionEngine<String> engine = new SuggestionEngine<>(text, source, view, scheduler, null);
+    engine.setSchedulingPolicy(new FixedDelaySchedulingPolicy(100, false));
+
+    type(engine, "a");
+    scheduler.runAll();
+    assertEquals(Collections.singletonList("a1"), view.shown);
+    assertTrue(engine.isIdle());
+
+    type(engine, "b");
+    scheduler.runAll();
+    assertEquals(Collections.singletonList("ab1"), view.shown);
+    assertTrue(engine.isIdle());
+  }
+
+  @Test
+  public void completesQueryOfUncompletedStreamingSource() {
+    final StreamingSuggestionSource<String> source = (query, consumer) -> consumer.accept(Collections.singletonList("a1"));
+    final SuggestionEngine<String> engine = new SuggestionEngine<>(text, source, view, scheduler, null);
+    engine.setSchedulingPolicy(new FixedDelaySchedulingPolicy(100, false));
+    engine.setPageSize(1);
+
+    type(engine, "a");
+    scheduler.runAll();
+    assertEquals(Collections.singletonList("a1"), view.shown);
+    assertTrue(engine.isIdle());
+
+    engine.requestNextPage();
+    scheduler.runAll();
+    assertEquals(Arrays.asList("a1", "a1"), view.shown);
+    assertTrue(engine.isIdle());
+  }
+
+  private List<String> suggest(SuggestionQuery query) {
+    queries.add(query.getValue());
+    return Arrays.asList(query.getValue() + "1", query.getValue() + "2");
+  }
+
+  private void type(SuggestionEngine<String> engine, String string) {
+    text.insert(string);
+    engine.textChanged();
+    engine.caretMoved();
+  }
+
+  private static class RecordingView implements SuggestionView<String> {
+
+    private final List<String> shown = new ArrayList<>();
+    private boolean showing = false;
+    private int nextPageAvailable = 0;
+
+    @Override
+    public boolean isAvailable() {
+      return true;
+    }
+
+    @Override
+    public void showSuggestions(List<String> suggestions, SuggestionQuery query, QueryMetrics metrics) {
+      shown.clear();
+      shown.addAll(suggestions);
+      showing = true;
+    }
+
+    @Override
+    public void appendSuggestions(List<String> suggestions, QueryMetrics metrics) {
+      shown.addAll(suggestions);
+    }
+
+    @Override
+    public void hideSuggestions() {
+      shown.clear();
+      showing = false;
+    }
+
+    @Override
+    public boolean isShowingSuggestions() {
+      return showing;
+    }
+
+    @Override
+    public void nextPageAvailable() {
+      nextPageAvailable++;
+    }
+  }
+}